@@ -31,6 +31,10 @@ public class Conditions {
     // Names of taken zones, if defined untaken zones will be prioritized by doubling their value
     public String[] takenlist;
 
+    // Names of crossings to keep as nodes besides start and end, e.g. where the other walkers
+    //  of a team start and end (see TeamSolver)
+    public String[] waypoints;
+
     public Conditions(String start, String end, double timeLimit) {
         this.start = start;
         this.end = end;
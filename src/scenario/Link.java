@@ -4,11 +4,13 @@ import turf.Connection;
 import turf.Trail;
 
 // Represents a one-way connection from a parent Node to its neighbor
-public class Link {
+public final class Link {
     
     // meters
     public double distance;
 
+    public int id; // index in Scenario.linkArray
+
     public Node parent;
     public Node neighbor;
 
@@ -21,14 +23,23 @@ public class Link {
     // Initialization
     // Will fail if parent already has a link to neighbor
     public Link(Trail trail, Node parent, Node neighbor) {
-        this.distance = trail.distance;
-        this.parent = parent;
-        this.neighbor = neighbor;
-        this.ancestor = trail.getConnections();
-
         if (parent.ancestor != trail.start() || neighbor.ancestor != trail.end()) {
             throw new IllegalArgumentException("Trail does not match nodes");
         }
+        this.ancestor = trail.getConnections();
+        connect(parent, neighbor, trail.distance);
+    }
+
+    // A link without a trail, e.g. of a scenario read by Scenario.read
+    public Link(Node parent, Node neighbor, double distance) {
+        connect(parent, neighbor, distance);
+    }
+
+    private void connect(Node parent, Node neighbor, double distance) {
+        this.distance = distance;
+        this.parent = parent;
+        this.neighbor = neighbor;
+
         if (parent.hasLinkTo(neighbor)) {
             // This link already exists
             throw new IllegalArgumentException("Link already exists from " + parent.name + " to " + neighbor.name);
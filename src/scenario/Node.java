@@ -10,6 +10,7 @@ import turf.Point;
 public class Node {
 
     public String name;
+    public int id; // index in Scenario.nodeArray
     public Set<Link> out;
     public Set<Node> outNodes;
     public Map<Node, Link> outMap;
@@ -35,6 +36,16 @@ public class Node {
         }
     }
 
+    // Create a node without a point, e.g. of a scenario read by Scenario.read
+    public Node(String name, int realPoints, int points) {
+        this.name = name;
+        this.out = new HashSet<>();
+        this.outNodes = new HashSet<>();
+        this.outMap = new HashMap<>();
+        this.realPoints = realPoints;
+        this.points = points;
+    }
+
     public boolean isZone() {
         return this.realPoints > 0;
     }
@@ -1,5 +1,10 @@
 package scenario;
 import java.io.Console;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -30,9 +35,18 @@ public class Scenario extends Logging {
 
     public double distanceLimit;
 
+    // start is end and every link is as long both ways, so every route reversed is just as good
+    public boolean isRoundTrip;
+
     // node names -> nodes
     private Map<String, Node> nodeName;
 
+    // node ids -> nodes, sorted by name
+    public Node[] nodeArray;
+
+    // link ids -> links, sorted by parent name, then neighbor name
+    public Link[] linkArray;
+
     // route cache, the result of findFastestRoutes() for each node
     public Map<Node, Map<Node, Route>> fastestRoutes;
 
@@ -46,8 +60,13 @@ public class Scenario extends Logging {
         for (Point zone : turf.zones) {
             addNode(zone, conditions.username, conditions.isNow);
         }
+        Set<String> waypoints = new HashSet<>();
+        if (conditions.waypoints != null) {
+            waypoints.addAll(Arrays.asList(conditions.waypoints));
+        }
         for (Point crossing : turf.crossings) {
-            if (crossing.name != conditions.start && crossing.name != conditions.end) {
+            if (crossing.name != conditions.start && crossing.name != conditions.end
+                    && !waypoints.contains(crossing.name)) {
                 continue;
             }
             addNode(crossing, conditions.username, conditions.isNow);
@@ -135,7 +154,7 @@ public class Scenario extends Logging {
         // Remove nodes that are crossings
         c = 0;
         for (Node node : new LinkedList<>(this.nodes)) {
-            if (node == start || node == end) {
+            if (node == start || node == end || waypoints.contains(node.ancestor.name)) {
                 continue;
             }
             if (!node.isZone()) {
@@ -254,9 +273,29 @@ public class Scenario extends Logging {
         log("Scenario: Cleaning up...");
 
 
+        // Assign ids
+        this.nodeArray = this.nodes.toArray(new Node[0]);
+        Arrays.sort(this.nodeArray, Comparator.comparing(node -> node.name));
+        for (int i = 0; i < this.nodeArray.length; i++) {
+            this.nodeArray[i].id = i;
+        }
+        this.linkArray = this.links.toArray(new Link[0]);
+        Arrays.sort(this.linkArray, Comparator.comparing((Link link) -> link.parent.name)
+            .thenComparing(link -> link.neighbor.name));
+        for (int i = 0; i < this.linkArray.length; i++) {
+            this.linkArray[i].id = i;
+        }
+        finish();
+
+
+        log("Scenario: *** Initialized with " + this.nodes.size() + " nodes and " + this.links.size() + " links");
+    }
+
+    // The rest of the derived data, once the graph is complete
+    private void finish() {
         // Regenerate routes
         this.fastestRoutes = new HashMap<>();
-        c = 1;
+        int c = 1;
         for (Node node : this.nodes) {
             System.out.print("Caching routes... (" + c++ + "/" + this.nodes.size() + ")\r");
             this.fastestRoutes.put(node, findFastestRoutes(node));
@@ -267,9 +306,67 @@ public class Scenario extends Logging {
                 throw new RuntimeException("One way link: " + link);
             }
         }
+        // (up to rounding, trails measured from either end can differ in the last bits)
+        this.isRoundTrip = this.start == this.end
+            && this.links.stream().allMatch(link -> Math.abs(link.distance - link.reverse.distance) < 1e-6);
+    }
+
+    /* Serialization */
+
+    // Only the graph is written (nodes, links and the problem definition), enough for solvers
+    //  but not for exporting, as the nodes and links of a scenario read back have no ancestors
+    //  (Points and Connections on the map)
+    // Ids mean the same nodes and links in the scenario read back
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(this.nodeArray.length);
+        for (Node node : this.nodeArray) {
+            out.writeUTF(node.name);
+            out.writeInt(node.realPoints);
+            out.writeInt(node.points);
+        }
+        out.writeInt(this.linkArray.length);
+        for (Link link : this.linkArray) {
+            out.writeInt(link.parent.id);
+            out.writeInt(link.neighbor.id);
+            out.writeDouble(link.distance);
+        }
+        out.writeInt(this.start.id);
+        out.writeInt(this.end.id);
+        out.writeDouble(this.timeLimit);
+        out.writeDouble(this.speed);
+        out.writeDouble(this.distanceLimit);
+    }
 
+    public static Scenario read(DataInputStream in) throws IOException {
+        return new Scenario(in);
+    }
 
-        log("Scenario: *** Initialized with " + this.nodes.size() + " nodes and " + this.links.size() + " links");
+    private Scenario(DataInputStream in) throws IOException {
+        this.nodes = new HashSet<>();
+        this.nodeName = new HashMap<>();
+        this.nodeArray = new Node[in.readInt()];
+        for (int i = 0; i < this.nodeArray.length; i++) {
+            Node node = new Node(in.readUTF(), in.readInt(), in.readInt());
+            node.id = i;
+            this.nodeArray[i] = node;
+            this.nodes.add(node);
+            this.nodeName.put(node.name, node);
+        }
+        this.links = new HashSet<>();
+        this.linkArray = new Link[in.readInt()];
+        for (int i = 0; i < this.linkArray.length; i++) {
+            Link link = new Link(this.nodeArray[in.readInt()], this.nodeArray[in.readInt()], in.readDouble());
+            link.id = i;
+            this.linkArray[i] = link;
+            this.links.add(link);
+        }
+        this.start = this.nodeArray[in.readInt()];
+        this.end = this.nodeArray[in.readInt()];
+        this.timeLimit = in.readDouble();
+        this.speed = in.readDouble();
+        this.distanceLimit = in.readDouble();
+        finish();
     }
 
     /* Utility functions */
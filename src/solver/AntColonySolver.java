@@ -0,0 +1,201 @@
+package solver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import scenario.Link;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+import solver.BruteForceSolver.AdvancedRoute;
+
+// Sends out ants that walk random routes link by link, preferring links with a lot of
+//  pheromone and links to zones with a lot of points nearby (ant colony optimization)
+// After each round, ants leave pheromone on the links of their route, more the better their
+//  route was, and the pheromone on every link slowly evaporates
+// The ants of a round walk on separate threads, leaving pheromone without any locking
+// Stops when it hasn't found a better route in a long while
+public class AntColonySolver extends Solver {
+
+    // amount of threads the ants walk on
+    private final int parallelism;
+
+    // for tweaking
+    private final long SEED = 0;
+    private final int ANTS_PER_THREAD = 16; // per round
+    private final double PHEROMONE_WEIGHT = 1.0; // exponent
+    private final double HEURISTIC_WEIGHT = 2.0; // exponent
+    private final double EVAPORATION = 0.1; // fraction per round
+    private final double MIN_PHEROMONE = 0.01; // the most pheromone on a link is 1
+    private final double REVISIT_VALUE = 0.1; // fraction of average zone points, for visited nodes
+    private final int STALL_LIMIT = 300; // rounds without improvement
+
+    // per link id, doubles stored as raw long bits so they can be updated atomically
+    private AtomicLongArray pheromone;
+    private double revisitPoints;
+
+    public AntColonySolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public AntColonySolver(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+        Random random = new Random(SEED);
+
+        this.pheromone = new AtomicLongArray(scenario.linkArray.length);
+        for (int i = 0; i < scenario.linkArray.length; i++) {
+            this.pheromone.set(i, Double.doubleToRawLongBits(1.0));
+        }
+        Node[] zones = reachableZones();
+        double totalPoints = 0.0;
+        for (Node zone : zones) {
+            totalPoints += zone.points;
+        }
+        this.revisitPoints = zones.length == 0 ? 1.0 : REVISIT_VALUE * totalPoints / zones.length;
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+        try {
+            int sinceImprovement = 0;
+            while (!shouldStop(end) && sinceImprovement < STALL_LIMIT) {
+                Route previousBest = this.bestRoute.get();
+                List<Callable<Void>> ants = new ArrayList<>();
+                for (int i = 0; i < this.parallelism * ANTS_PER_THREAD; i++) {
+                    SplittableRandom antRandom = new SplittableRandom(random.nextLong());
+                    ants.add(() -> {
+                        walk(antRandom, end);
+                        return null;
+                    });
+                }
+                for (Future<Void> future : executor.invokeAll(ants)) {
+                    future.get();
+                }
+                evaporate();
+                // The best route so far is always reinforced, so the ants keep searching near it
+                Route best = this.bestRoute.get();
+                if (best != null) {
+                    deposit(best, EVAPORATION);
+                }
+                if (best != previousBest) {
+                    sinceImprovement = 0;
+                } else {
+                    sinceImprovement++;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+        return result();
+    }
+
+    // One ant walks from start until it can't go anywhere useful without risking not reaching
+    //  the end in time, then goes straight to the end and leaves pheromone on its route
+    private void walk(SplittableRandom random, long endTime) {
+        Node end = this.scenario.end;
+        AdvancedRoute route = new AdvancedRoute(this.scenario.start);
+        List<Link> candidates = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        while (!shouldStop(endTime)) {
+            candidates.clear();
+            weights.clear();
+            double totalWeight = 0.0;
+            for (Link link : route.node.out) {
+                Node next = link.neighbor;
+                // Can't be finished without exceeding the distance limit
+                double distance = route.distance + link.distance;
+                if (distance + this.distances[next.id][end.id] > this.scenario.distanceLimit) {
+                    continue;
+                }
+                boolean captures = !route.hasVisited(next);
+                // Returns to a zone without capturing any new zones
+                if (next == route.lastCapture) {
+                    continue;
+                }
+                // Wanders over visited nodes instead of heading somewhere new
+                if (!captures && this.distances[route.lastCapture.id][next.id]
+                        < route.distanceSinceLastCapture + link.distance - 1e-9) {
+                    continue;
+                }
+                double value = captures ? next.points : this.revisitPoints;
+                double heuristic = value / Math.max(link.distance, 1.0);
+                double weight = Math.pow(pheromoneOn(link), PHEROMONE_WEIGHT)
+                    * Math.pow(heuristic, HEURISTIC_WEIGHT);
+                candidates.add(link);
+                weights.add(weight);
+                totalWeight += weight;
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            // Pick a link with probability proportional to its weight
+            double pick = random.nextDouble() * totalWeight;
+            int chosen = 0;
+            while (chosen < candidates.size() - 1 && pick >= weights.get(chosen)) {
+                pick -= weights.get(chosen);
+                chosen++;
+            }
+            route = new AdvancedRoute(route, candidates.get(chosen));
+        }
+        Route finished = route;
+        if (route.node != end) {
+            finished = Route.extend(route, this.scenario.fastestRoutes.get(route.node).get(end));
+        }
+        // Only if even the start is too far from the end, then no route fits
+        if (finished.distance > this.scenario.distanceLimit) {
+            return;
+        }
+        finishRoute(finished);
+        // Relative to the best route, which may have no points yet (then neither has this one)
+        int bestPoints = Math.max(this.bestRoute.get().points, 1);
+        deposit(finished, EVAPORATION * finished.points / (bestPoints * this.parallelism * ANTS_PER_THREAD));
+    }
+
+    private double pheromoneOn(Link link) {
+        return Double.longBitsToDouble(this.pheromone.get(link.id));
+    }
+
+    // Adds pheromone to every link of the route, once per link
+    // Safe to call from multiple threads at once, as every addition retries until no other
+    //  thread has changed the link in between
+    private void deposit(Route route, double amount) {
+        for (Route step = route; step.link != null; step = step.previous) {
+            if (step.previous.hasVisited(step.link)) {
+                continue;
+            }
+            int id = step.link.id;
+            long current;
+            long updated;
+            do {
+                current = this.pheromone.get(id);
+                double value = Math.min(1.0, Double.longBitsToDouble(current) + amount);
+                updated = Double.doubleToRawLongBits(value);
+            } while (!this.pheromone.compareAndSet(id, current, updated));
+        }
+    }
+
+    // Only called between rounds, when no ants are walking
+    private void evaporate() {
+        for (int i = 0; i < this.pheromone.length(); i++) {
+            double value = Double.longBitsToDouble(this.pheromone.get(i)) * (1.0 - EVAPORATION);
+            this.pheromone.set(i, Double.doubleToRawLongBits(Math.max(MIN_PHEROMONE, value)));
+        }
+    }
+}
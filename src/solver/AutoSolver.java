@@ -0,0 +1,131 @@
+package solver;
+import scenario.Link;
+import scenario.Route;
+import scenario.Scenario;
+import util.Logging;
+
+// Picks a solver for the scenario, so callers don't have to know which one suits it
+// Estimates how long BruteForceSolver takes to search the scenario (see BruteForceSolver.estimate),
+//  spending a little of the time limit on it
+// - Tiny trees are searched completely while estimating, whose best route is returned as is
+// - Small trees are searched by BruteForceSolver alone, which proves its route optimal quickly
+// - Medium trees are searched by BruteForceSolver and MeetInTheMiddleSolver alongside
+//   LocalSearchSolver, so there is a good route by the deadline even if they don't finish
+// - Large trees (or too many nodes to keep sets of captured zones for) are left to heuristic
+//   solvers, whose routes are polished afterwards
+public class AutoSolver extends Solver {
+
+    // for tweaking
+    private final int ESTIMATE_SHARE = 20; // at most 1 / this of the time limit is spent estimating
+    private final double DEFAULT_TIME_LIMIT = 10.0; // seconds, what counts as quick without a time limit
+    private final double PORTFOLIO_FACTOR = 1000.0; // how far over the time limit exact solvers may still finish
+    private final int MAX_EXACT_NODES = 100;
+
+    // What the solver is based on
+    public static class Profile {
+
+        public int nodes;
+        public int links;
+        public double linksPerNode;
+        public double depth; // links in a route of the full distance limit
+
+        public Profile(Scenario scenario) {
+            this.nodes = scenario.nodeArray.length;
+            this.links = scenario.linkArray.length;
+            double length = 0.0;
+            for (Link link : scenario.linkArray) {
+                length += link.distance;
+            }
+            this.linksPerNode = (double) this.links / this.nodes;
+            this.depth = this.links == 0 ? 0.0 : scenario.distanceLimit / (length / this.links);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%d nodes, %.1f links per node, about %.1f links per route",
+                this.nodes, this.linksPerNode, this.depth
+            );
+        }
+    }
+
+    private final int parallelism;
+
+    // of the last solve
+    public Profile profile;
+    public TreeEstimate estimate;
+    public Solver chosen;
+
+    public AutoSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Threads for BruteForceSolver to search with when it's picked alone
+    public AutoSolver(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        this.profile = new Profile(scenario);
+        long start = System.nanoTime();
+        long estimateTime = BruteForceSolver.DEFAULT_ESTIMATE_TIME;
+        if (timeLimit != null) {
+            estimateTime = Math.min(estimateTime, timeLimit / ESTIMATE_SHARE);
+        }
+        // Shares its routes in case it searches the whole tree
+        BruteForceSolver estimator = new BruteForceSolver();
+        estimator.shareRoutesWith(this);
+        try {
+            this.estimate = estimator.estimate(scenario, estimateTime);
+        } finally {
+            estimator.shareRoutesWith(null);
+        }
+        if (timeLimit != null) {
+            timeLimit = Math.max(0, timeLimit - (System.nanoTime() - start) / 1_000_000);
+        }
+        double seconds = timeLimit == null ? DEFAULT_TIME_LIMIT : timeLimit / 1000.0;
+        boolean heuristic = false;
+        if (this.estimate.complete) {
+            // Already found the best route, nothing left to search
+            this.chosen = estimator;
+        } else if (this.estimate.seconds(this.parallelism) <= seconds) {
+            this.chosen = new BruteForceSolver(this.parallelism);
+        } else if (this.estimate.seconds() <= seconds * PORTFOLIO_FACTOR && this.profile.nodes <= MAX_EXACT_NODES) {
+            this.chosen = new PortfolioSolver(
+                new BruteForceSolver(), new LocalSearchSolver(), new MeetInTheMiddleSolver()
+            );
+        } else {
+            this.chosen = new PortfolioSolver(
+                new LocalSearchSolver(), new AntColonySolver(), new LargeNeighborhoodSolver()
+            );
+            heuristic = true;
+        }
+        Logging.log(
+            "AutoSolver: " + this.profile + ", " + this.estimate + ", picked " + this.chosen.getClass().getSimpleName()
+        );
+
+        int upperBound = estimator.upperBound;
+        Result result = null;
+        if (this.chosen != estimator) {
+            this.chosen.shareRoutesWith(this);
+            try {
+                result = this.chosen.solve(scenario, timeLimit);
+            } finally {
+                this.chosen.shareRoutesWith(null);
+            }
+            upperBound = result.upperBound;
+        }
+        this.upperBound = Math.min(this.upperBound, upperBound);
+        if (heuristic) {
+            for (Route route : new RoutePolisher(scenario).polish(result).routes) {
+                finishRoute(route);
+            }
+        }
+        return result();
+    }
+}
@@ -0,0 +1,159 @@
+package solver;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// Extends routes one zone at a time, level by level, only keeping the most promising routes
+//  at each level (a beam search)
+// Routes are scored by points per distance, counting the distance back to the end
+// If there is time left after a search, it searches again with a twice as wide beam
+// Travels between zones along the fastest routes, so it ignores links and crosses entirely
+public class BeamSolver extends Solver {
+
+    // for tweaking
+    private final int initialWidth;
+    private final int WIDENING_FACTOR = 2;
+
+    public BeamSolver() {
+        this(64);
+    }
+
+    public BeamSolver(int initialWidth) {
+        if (initialWidth < 1) {
+            throw new IllegalArgumentException("Beam width must be at least 1");
+        }
+        this.initialWidth = initialWidth;
+    }
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+        Node[] zones = reachableZones();
+        int width = this.initialWidth;
+        while (true) {
+            boolean truncated = search(zones, width, end);
+            if (shouldStop(end)) {
+                break;
+            }
+            if (!truncated) {
+                // Nothing was ever left out of the beam, so every set of zones has been tried
+                //  (if no route fits the distance limit, there's no best route to prove)
+                proveOptimal();
+                break;
+            }
+            width *= WIDENING_FACTOR;
+        }
+        return result();
+    }
+
+    // Searches with a beam of the given width
+    // Returns true if any routes were left out of the beam
+    private boolean search(Node[] zones, int width, long endTime) {
+        Node end = this.scenario.end;
+        boolean truncated = false;
+        List<Partial> beam = List.of(new Partial(this.scenario.start));
+        while (!beam.isEmpty()) {
+            // Only keep the shortest route per last zone and set of visited zones
+            Map<Node, Map<BitSet, Partial>> children = new HashMap<>();
+            for (Partial partial : beam) {
+                if (shouldStop(endTime)) {
+                    return true;
+                }
+                finish(partial);
+                double[] fromNode = this.distances[partial.node.id];
+                for (Node zone : zones) {
+                    if (partial.visited.get(zone.id)) {
+                        continue;
+                    }
+                    // Distance limit will be exceeded
+                    double distance = partial.distance + fromNode[zone.id];
+                    if (distance + this.distances[zone.id][end.id] > this.scenario.distanceLimit) {
+                        continue;
+                    }
+                    Partial child = new Partial(partial, zone, distance);
+                    Map<BitSet, Partial> sameNode = children.computeIfAbsent(zone, k -> new HashMap<>());
+                    Partial existing = sameNode.get(child.visited);
+                    if (existing == null || child.distance < existing.distance) {
+                        sameNode.put(child.visited, child);
+                    }
+                }
+            }
+            List<Partial> next = new ArrayList<>();
+            for (Map<BitSet, Partial> sameNode : children.values()) {
+                next.addAll(sameNode.values());
+            }
+            if (next.size() > width) {
+                truncated = true;
+                next.sort(Comparator.comparingDouble(this::score).reversed());
+                next = next.subList(0, width);
+            }
+            beam = next;
+        }
+        return truncated;
+    }
+
+    // Points per distance, including the distance back to the end
+    private double score(Partial partial) {
+        double toEnd = this.distances[partial.node.id][this.scenario.end.id];
+        return partial.points / (partial.distance + toEnd);
+    }
+
+    // Finish the route by going to the end, if that fits the limit and would be an improvement
+    private void finish(Partial partial) {
+        Node end = this.scenario.end;
+        int points = partial.points + (partial.visited.get(end.id) ? 0 : end.points);
+        double distance = partial.distance + this.distances[partial.node.id][end.id];
+        // Children are only kept within the limit, but the start may not reach the end in time
+        if (distance > this.scenario.distanceLimit || this.finishedRoutes.contains(points, distance)) {
+            return;
+        }
+        finishRoute(fastestRouteThrough(partial.toNodes(this.scenario.end)));
+    }
+
+    // A route as a sequence of zones, lighter than a Route
+    private static class Partial {
+
+        public Partial previous;
+        public Node node;
+        public double distance;
+        public int points;
+        public BitSet visited; // node ids
+
+        public Partial(Node root) {
+            this.previous = null;
+            this.node = root;
+            this.distance = 0.0;
+            this.points = root.points;
+            this.visited = new BitSet();
+            this.visited.set(root.id);
+        }
+
+        public Partial(Partial base, Node zone, double distance) {
+            this.previous = base;
+            this.node = zone;
+            this.distance = distance;
+            this.points = base.points + zone.points;
+            this.visited = (BitSet) base.visited.clone();
+            this.visited.set(zone.id);
+        }
+
+        // The zones in order, followed by the end
+        public List<Node> toNodes(Node end) {
+            List<Node> order = new ArrayList<>();
+            for (Partial partial = this; partial != null; partial = partial.previous) {
+                order.add(0, partial.node);
+            }
+            order.add(end);
+            return order;
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package solver;
 import java.io.Console;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import scenario.Link;
 import scenario.Node;
 import scenario.Route;
@@ -11,35 +18,544 @@ import scenario.Scenario;
 // The original solving algorithm, from version 1
 // A brute force algorithm that tries every possible route, but slightly
 //  optimized by not trying routes that are guaranteed to be invalid
+//  or guaranteed to finish with fewer points than the best route so far
 // While the original was breadth-first, this implementation is depth-first
+// Can optionally split the search tree over multiple threads
+// Remembers the states (node and captured zones) it has reached, to skip reaching them again
+//  in a longer distance
+// Can also repair part of a route found by another solver
+// Sequential searches can be checkpointed and resumed where they stopped
+// Only searches round trips in one direction (see AdvancedRoute.halfwayPoints)
+// Tries the links out of a node in a fixed order (see Ordering), so that runs are reproducible
 public class BruteForceSolver extends Solver {
-    
+
+    // amount of threads to search with, 1 means a plain sequential search
+    private final int parallelism;
+
+    // The order to try the links out of a node in
+    // Good routes found early let the bound (rule 6) skip more of the search
+    public enum Ordering {
+        // Link.id, which follows node names
+        ID,
+        // most points (of the node the link goes to) per meter first
+        POINTS_PER_METER,
+        // most distance left to spare after the link and the fastest way from there to the end first
+        SLACK,
+        // links used by the best routes found so far first, then by points per meter
+        HISTORY
+    }
+
+    public static final Ordering DEFAULT_ORDERING = Ordering.POINTS_PER_METER;
+
+    private final Ordering ordering;
+    // how much every link (by id) has been used by the best routes, for Ordering.HISTORY
+    private long[] history;
+
+    // for tweaking
+    // a thread keeps splitting off subtrees as tasks while it has fewer than this many
+    //  queued tasks that haven't been stolen by other threads, otherwise it searches sequentially
+    private final int MAX_SURPLUS_TASKS = 3;
+    public static final long DEFAULT_TABLE_BYTES = 64L << 20;
+    public static final long DEFAULT_ESTIMATE_TIME = 300; // ms
+    private final double WARMUP_SHARE = 0.25; // of the estimate's time, spent measuring the expansion rate
+    private final long SEED = 0;
+
+    // memory cap of the transposition table, 0 means no table
+    private final long tableBytes;
+    private TranspositionTable table;
+    // mixed into every state hash, different for every search so states from earlier
+    //  searches (such as other repairs) are never mistaken for states of this one
+    private long salt;
+    private long searches;
+
+    // what the search is looking for: routes that reach target without exceeding limit,
+    //  only passing through region (anywhere if null) and nodes they have already visited
+    // normally the end and distance limit of the scenario, but different when repairing
+    private Node target;
+    private double limit;
+    private Set<Node> region;
+
+    // the best route to target found while repairing, null when solving
+    private AdvancedRoute bestRepair;
+
+    // links out of every node (by id) in the order to try them in, so branches are numbered the same every run
+    //  (except with Ordering.HISTORY)
+    private Link[][] outLinks;
+
+    // where the sequential search is, as the index of the branch taken at every depth
+    private int[] branches = new int[16];
+    private int depth;
+    // where the search stopped, null if it hasn't
+    private int[] stoppedAt;
+    // where to resume the search, dropped once the search gets past it
+    private int[] resume;
+    // whether the last solve searched the whole tree
+    private volatile boolean stopped;
+    private boolean complete;
+
+    // points of the best route found elsewhere, to prune like this search had found it
+    //  (see DistributedSolver, which tells its workers about each other's routes)
+    volatile int incumbent;
+
+    public BruteForceSolver() {
+        this(1);
+    }
+
+    public BruteForceSolver(int parallelism) {
+        this(parallelism, DEFAULT_TABLE_BYTES);
+    }
+
+    public BruteForceSolver(int parallelism, long tableBytes) {
+        this(parallelism, tableBytes, DEFAULT_ORDERING);
+    }
+
+    public BruteForceSolver(int parallelism, long tableBytes, Ordering ordering) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (tableBytes < 0) {
+            throw new IllegalArgumentException("Table size can't be negative");
+        }
+        this.parallelism = parallelism;
+        this.tableBytes = tableBytes;
+        this.ordering = ordering;
+    }
+
     public Result solve(Scenario scenario, Long timeLimit) {
+        prepareSearch(scenario);
+        this.stoppedAt = null;
+        this.resume = null;
+        this.complete = false;
+        if (this.resumed != null) {
+            if (this.resumed.finished) {
+                this.upperBound = Math.min(this.upperBound, this.resumed.upperBound);
+                this.complete = true;
+                return result();
+            }
+            // Branch indices only mean the same with the same ordering
+            int[] position = this.resumed.position;
+            if (position != null && position.length > 0 && position[0] == this.ordering.ordinal()) {
+                this.resume = Arrays.copyOfRange(position, 1, position.length);
+            }
+        }
+        long end = super.endTime(timeLimit);
+        AdvancedRoute root = root();
+        if (this.parallelism == 1) {
+            resumableSearch(root, 0, end);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+            try {
+                pool.invoke(new SearchTask(root, end));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        this.complete = !this.stopped;
+        // The whole tree was searched, so nothing can beat the best route
+        if (this.complete) {
+            proveOptimal();
+        }
+        return result();
+    }
+
+    // Precalculations for searching the scenario for its best route
+    private void prepareSearch(Scenario scenario) {
+        prepare(scenario);
+        this.target = scenario.end;
+        this.limit = scenario.distanceLimit;
+        this.region = null;
+        this.bestRepair = null;
+        this.salt = TranspositionTable.key(-++this.searches);
+        this.stopped = false;
+    }
+
+    // The route the search starts from
+    private AdvancedRoute root() {
+        double half = this.scenario.isRoundTrip ? this.limit / 2 : Double.POSITIVE_INFINITY;
+        return new AdvancedRoute(this.scenario.start, half);
+    }
+
+    // Precalculations for searching the scenario
+    void prepare(Scenario scenario) {
         this.scenario = scenario;
-        this.finishedRoutes = new HashMap<>();
-        this.bestRoute = null;
+        initFinishedRoutes();
         findCrosses();
-        long end = super.endTime(timeLimit);
-        search(new AdvancedRoute(scenario.start), end);
-        return new Result(finishedRoutes.values(), scenario.speed);
+        findDistances();
+        findBounds();
+        findUpperBound();
+        this.history = new long[scenario.linkArray.length];
+        this.outLinks = new Link[scenario.nodeArray.length][];
+        for (Node node : scenario.nodeArray) {
+            Link[] links = node.out.toArray(new Link[0]);
+            Arrays.sort(links, linkOrder());
+            this.outLinks[node.id] = links;
+        }
+        if (this.table == null && this.tableBytes > 0) {
+            this.table = new TranspositionTable(this.tableBytes);
+        }
+    }
+
+    // Finds the best route from base to target within limit, only passing through region and
+    //  nodes base has already visited, if it's better than incumbent (another such route)
+    // Returns incumbent otherwise
+    // prepare must have been called first
+    AdvancedRoute repair(
+        AdvancedRoute base, AdvancedRoute incumbent, Node target, double limit, Set<Node> region, long endTime
+    ) {
+        this.target = target;
+        this.limit = limit;
+        this.region = region;
+        this.bestRepair = incumbent;
+        this.salt = TranspositionTable.key(-++this.searches);
+        search(base, endTime);
+        AdvancedRoute best = this.bestRepair;
+        this.bestRepair = null;
+        return best;
+    }
+
+    // Estimates how large the search tree of the scenario is and how long searching it takes,
+    //  within timeLimit (ms), see TreeEstimate
+    // First searches the start of the tree for a while, which finds routes to beat like the full
+    //  search does early on (kept to itself, like a repair does), and may search all of a small
+    //  tree, whose best route is then finished like a solve's. Then follows random paths down the tree (Knuth's estimator): a path through routes
+    //  with b1, b2, ... valid extensions stands for 1 + b1 + b1*b2 + ... routes, and the average
+    //  over many paths is an unbiased estimate of the size of the tree
+    // The paths can't use the transposition table, which only skips states reached before, so
+    //  for large trees the estimate is on the high side
+    // A step down a path costs about as much as expanding a route, so the expansion rate is
+    //  measured on the last half of the paths, once the JIT has compiled them
+    public TreeEstimate estimate(Scenario scenario, long timeLimit) {
+        long start = System.nanoTime();
+        long end = start + timeLimit * 1_000_000;
+        this.control.reset();
+        prepareSearch(scenario);
+        AdvancedRoute root = root();
+        // The fastest route to the end is the first one to beat
+        AdvancedRoute fastest = root;
+        for (Link link : scenario.fastestRoutes.get(scenario.start).get(scenario.end).getLinks()) {
+            fastest = new AdvancedRoute(fastest, link);
+        }
+        this.bestRepair = fastest;
+        long warmupStart = System.nanoTime();
+        search(root, warmupStart + (long) ((end - warmupStart) * WARMUP_SHARE));
+        if (!this.stopped) {
+            // Its best route is the best route of the scenario, so keep it like a solve would
+            //  (but not the rest of the front, which was pruned)
+            // Still the fastest route if no route fits the distance limit, and then it doesn't either
+            AdvancedRoute best = this.bestRepair;
+            this.bestRepair = null;
+            if (best.distance <= scenario.distanceLimit) {
+                finishRoute(searchedDirection(best));
+            }
+            proveOptimal();
+            double expanded = this.metrics.expandedCount();
+            double seconds = Math.max((System.nanoTime() - warmupStart) / 1e9, 1e-9);
+            return new TreeEstimate(expanded, 0, expanded / seconds, true);
+        }
+
+        TranspositionTable table = this.table;
+        this.table = null;
+        Random random = new Random(SEED);
+        Link[] valid = new Link[scenario.linkArray.length];
+        double total = 0.0;
+        long probes = 0;
+        long steps = 0;
+        long probeStart = System.nanoTime();
+        long measureFrom = probeStart + (end - probeStart) / 2;
+        long measuredSteps = -1;
+        long measuredTime = 0;
+        try {
+            do {
+                AdvancedRoute route = root;
+                double routes = 1.0; // on the path's level of the tree, that the route stands for
+                while (true) {
+                    total += routes;
+                    steps++;
+                    int count = 0;
+                    for (Link link : this.outLinks[route.node.id]) {
+                        if (invalidRouteExtension(route, link) == 0) {
+                            valid[count++] = link;
+                        }
+                    }
+                    if (count == 0) {
+                        break;
+                    }
+                    routes *= count;
+                    route = new AdvancedRoute(route, valid[random.nextInt(count)]);
+                }
+                probes++;
+                long now = System.nanoTime();
+                if (measuredSteps < 0 && now - measureFrom > 0) {
+                    measuredSteps = steps;
+                    measuredTime = now;
+                }
+            } while (System.nanoTime() - end < 0 && !this.control.isCancelled());
+        } finally {
+            this.table = table;
+            this.bestRepair = null;
+        }
+        // Too few paths to have a last half
+        if (measuredSteps < 0 || measuredSteps == steps) {
+            measuredSteps = 0;
+            measuredTime = probeStart;
+        }
+        double rate = (steps - measuredSteps) / Math.max((System.nanoTime() - measuredTime) / 1e9, 1e-9);
+        return new TreeEstimate(total / probes, probes, rate, false);
+    }
+
+    public TreeEstimate estimate(Scenario scenario) {
+        return estimate(scenario, DEFAULT_ESTIMATE_TIME);
+    }
+
+    // Searching the tree in parts, see DistributedSolver
+    // A part (work unit) is the subtree below a route, given as the ids of its links
+
+    // Precalculations for split and searchUnit
+    void prepareUnits(Scenario scenario) {
+        this.control.reset();
+        prepareSearch(scenario);
+    }
+
+    // Splits the tree into at least count subtrees (unless it's smaller), a level at a time, so
+    //  they are in the order the search would reach them in
+    // Routes above the subtrees that reach the target are finished here
+    List<int[]> split(int count) {
+        List<AdvancedRoute> level = List.of(root());
+        while (level.size() < count) {
+            List<AdvancedRoute> next = new ArrayList<>();
+            for (AdvancedRoute base : level) {
+                for (Link link : this.outLinks[base.node.id]) {
+                    if (invalidRouteExtension(base, link) != 0) {
+                        continue;
+                    }
+                    AdvancedRoute route = new AdvancedRoute(base, link);
+                    if (route.node == this.target) {
+                        finish(route);
+                    }
+                    next.add(route);
+                }
+            }
+            // Routes without valid extensions have nothing left to search
+            if (next.isEmpty()) {
+                break;
+            }
+            level = next;
+        }
+        List<int[]> units = new ArrayList<>();
+        for (AdvancedRoute route : level) {
+            units.add(route.getLinks().stream().mapToInt(link -> link.id).toArray());
+        }
+        return units;
+    }
+
+    // Searches the subtree below the route with the links, returns whether it searched all of it
+    boolean searchUnit(int[] links, long endTime) {
+        AdvancedRoute base = root();
+        for (int id : links) {
+            base = new AdvancedRoute(base, this.scenario.linkArray[id]);
+        }
+        this.stopped = false;
+        search(base, endTime);
+        return !this.stopped;
+    }
+
+    // Ties are broken by id, so the order never depends on anything but the scenario (and history)
+    private Comparator<Link> linkOrder() {
+        Comparator<Link> byId = Comparator.comparingInt(link -> link.id);
+        Comparator<Link> byPointsPerMeter = Comparator.comparingDouble(
+            (Link link) -> -link.neighbor.points / link.distance
+        ).thenComparing(byId);
+        return switch (this.ordering) {
+            case ID -> byId;
+            case POINTS_PER_METER -> byPointsPerMeter;
+            case SLACK -> Comparator.comparingDouble(
+                (Link link) -> link.distance + this.distances[link.neighbor.id][this.scenario.end.id]
+            ).thenComparing(byId);
+            case HISTORY -> Comparator.comparingLong((Link link) -> -this.history[link.id])
+                .thenComparing(byPointsPerMeter);
+        };
+    }
+
+    // Moves the links of a new best route forward, for Ordering.HISTORY
+    // Links used by routes with more points count more
+    // Nodes get new arrays rather than sorting theirs, as searches may be iterating over them
+    private synchronized void learn(Route route) {
+        Set<Node> changed = new HashSet<>();
+        for (Link link : route.getLinks()) {
+            this.history[link.id] += route.points;
+            changed.add(link.parent);
+        }
+        for (Node node : changed) {
+            Link[] links = this.outLinks[node.id].clone();
+            Arrays.sort(links, linkOrder());
+            this.outLinks[node.id] = links;
+        }
+    }
+
+    // A route has reached the target
+    private void finish(AdvancedRoute route) {
+        if (this.bestRepair == null) {
+            Route finished = searchedDirection(route);
+            finishRoute(finished);
+            if (this.ordering == Ordering.HISTORY && this.bestRoute.get() == finished) {
+                learn(finished);
+            }
+        } else if (isBetter(route, this.bestRepair)) {
+            this.bestRepair = route;
+        }
+    }
+
+    // Round trips are only searched in one direction (see AdvancedRoute.half), but routes in the
+    //  other one can still be found before the bound is tight enough to skip them, depending on
+    //  the ordering and on other threads. Those are finished reversed, so every search finishes
+    //  the same routes
+    private Route searchedDirection(AdvancedRoute route) {
+        if (2 * route.halfwayPoints >= route.points) {
+            return route;
+        }
+        List<Link> links = route.getLinks();
+        Route reversed = new Route(route.node);
+        for (int i = links.size() - 1; i >= 0; i--) {
+            reversed = new Route(reversed, links.get(i).reverse);
+        }
+        return reversed;
     }
 
     // Recursively searches for valid, finished routes
     private void search(AdvancedRoute base, long endTime) {
-        if (System.currentTimeMillis() > endTime) {
+        if (shouldStop(endTime)) {
+            this.stopped = true;
             return;
         }
-        for (Link link : base.node.out) {
+        int branches = 0;
+        for (Link link : this.outLinks[base.node.id]) {
             int error = invalidRouteExtension(base, link);
             if (error != 0) {
+                this.metrics.pruned(error);
                 continue;
             }
+            branches++;
             AdvancedRoute next = new AdvancedRoute(base, link);
-            if (next.node == this.scenario.end) {
-                finishRoute(next);
+            if (next.node == this.target) {
+                finish(next);
             }
             search(next, endTime);
         }
+        this.metrics.expanded(base.nodes - 1, branches);
+    }
+
+    // The same search, but keeping track of where it is, so it can be resumed from there
+    // depth is the amount of links in base
+    private void resumableSearch(AdvancedRoute base, int depth, long endTime) {
+        this.depth = depth;
+        if (shouldStop(endTime)) {
+            if (!this.stopped) {
+                this.stopped = true;
+                this.stoppedAt = Arrays.copyOf(this.branches, depth);
+            }
+            return;
+        }
+        int first = 0;
+        if (this.resume != null) {
+            if (depth < this.resume.length) {
+                first = this.resume[depth];
+            } else {
+                // Reached where the search stopped
+                this.resume = null;
+            }
+        }
+        int branches = 0;
+        Link[] links = this.outLinks[base.node.id];
+        for (int i = first; i < links.length; i++) {
+            Link link = links[i];
+            int error = invalidRouteExtension(base, link);
+            if (error != 0) {
+                this.metrics.pruned(error);
+                // When resuming, a better route found since may rule out where the search
+                //  stopped, then the search continues from the next branch
+                this.resume = null;
+                continue;
+            }
+            branches++;
+            AdvancedRoute next = new AdvancedRoute(base, link);
+            if (next.node == this.target) {
+                finish(next);
+            }
+            if (depth == this.branches.length) {
+                this.branches = Arrays.copyOf(this.branches, depth * 2);
+            }
+            this.branches[depth] = i;
+            resumableSearch(next, depth + 1, endTime);
+        }
+        this.metrics.expanded(depth, branches);
+    }
+
+    // Only the sequential search keeps track of where it is, and only with a fixed ordering
+    // Starts with the ordering, as branch indices depend on it
+    @Override
+    protected int[] checkpointPosition() {
+        if (this.parallelism > 1 || this.ordering == Ordering.HISTORY) {
+            return null;
+        }
+        int[] branches = this.stoppedAt != null ? this.stoppedAt : Arrays.copyOf(this.branches, this.depth);
+        int[] position = new int[branches.length + 1];
+        position[0] = this.ordering.ordinal();
+        System.arraycopy(branches, 0, position, 1, branches.length);
+        return position;
+    }
+
+    @Override
+    protected boolean checkpointFinished() {
+        return this.provenOptimal || this.complete;
+    }
+
+    // A subtree of the search, split into further subtrees while other threads are idle
+    // Idle threads steal queued subtrees from busy threads, so the split is uneven where
+    //  the tree is uneven
+    // Never serialized, even though ForkJoinTask is Serializable
+    @SuppressWarnings("serial")
+    private class SearchTask extends RecursiveAction {
+
+        private final AdvancedRoute base;
+        private final long endTime;
+
+        public SearchTask(AdvancedRoute base, long endTime) {
+            this.base = base;
+            this.endTime = endTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (shouldStop(endTime)) {
+                stopped = true;
+                return;
+            }
+            List<SearchTask> subtasks = new ArrayList<>();
+            int branches = 0;
+            for (Link link : outLinks[base.node.id]) {
+                int error = invalidRouteExtension(base, link);
+                if (error != 0) {
+                    metrics.pruned(error);
+                    continue;
+                }
+                branches++;
+                AdvancedRoute next = new AdvancedRoute(base, link);
+                if (next.node == target) {
+                    finish(next);
+                }
+                if (getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+                    SearchTask subtask = new SearchTask(next, endTime);
+                    subtask.fork();
+                    subtasks.add(subtask);
+                } else {
+                    search(next, endTime);
+                }
+            }
+            metrics.expanded(base.nodes - 1, branches);
+            for (SearchTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
     }
 
     // Returns a nonzero number if the route would be invalid (aka inefficient) if extended via the link
@@ -47,8 +563,8 @@ public class BruteForceSolver extends Solver {
         Node newNode = newLink.neighbor;
 
         // Can't be finished without exceeding the distance limit
-        Route endRoute = this.scenario.fastestRoutes.get(newNode).get(this.scenario.end);
-        if (route.distance + newLink.distance + endRoute.distance > this.scenario.distanceLimit) {
+        Route endRoute = this.scenario.fastestRoutes.get(newNode).get(this.target);
+        if (route.distance + newLink.distance + endRoute.distance > this.limit) {
             return 1;
         }
 
@@ -73,6 +589,49 @@ public class BruteForceSolver extends Solver {
             return 5;
         }
 
+        // Can't finish with as many points as the best route so far, or with exactly as many
+        //  but in a shorter distance
+        //  (or when finding the whole front, can't finish without being beaten by a route in it)
+        Route best = this.bestRepair != null ? this.bestRepair : this.bestRoute.get();
+        int toBeat = Math.max(best != null ? best.points : 0, this.bestRepair != null ? 0 : this.incumbent);
+        if (best != null || toBeat > 0) {
+            int points = route.points + (route.hasVisited(newNode) ? 0 : newNode.points);
+            double distance = route.distance + newLink.distance;
+            double toTarget = distance + this.distances[newNode.id][this.target.id];
+            boolean front = this.bestRepair == null && findsWholeFront();
+            // Only ties with a route of this search (not just its points) can be beaten on distance
+            boolean tie = best != null && best.points == toBeat;
+            double cutoff = front ? Double.POSITIVE_INFINITY : tie ? toBeat + 1 : toBeat;
+            double bound = upperBound(newNode, distance, points, route.visited, this.target, this.limit, cutoff);
+            // Round trips are only searched in the direction with the most points in the first half
+            if (distance > route.half) {
+                bound = Math.min(bound, 2 * route.halfwayPoints);
+            }
+            if (front ? !couldImprove(bound, toTarget)
+                    : bound < toBeat || (tie && bound < toBeat + 1 && toTarget > best.distance + 1e-9)) {
+                return 6;
+            }
+        }
+
+        // Leaves the region without going to the target or somewhere already visited
+        if (this.region != null && !this.region.contains(newNode)
+                && newNode != this.target && !route.hasVisited(newNode)) {
+            return 7;
+        }
+
+        // Reaches the same node with the same zones captured as an earlier route, but not faster
+        if (this.table != null) {
+            long state = route.stateHash(newNode) ^ this.salt;
+            // Past halfway, round trips with fewer points in the first half can get fewer points
+            //  (far from the keys of states and salts)
+            if (route.distance + newLink.distance > route.half) {
+                state ^= TranspositionTable.key(Long.MIN_VALUE + route.halfwayPoints);
+            }
+            if (!this.table.visit(state, route.distance + newLink.distance)) {
+                return 8;
+            }
+        }
+
         return 0;
     }
 
@@ -80,24 +639,65 @@ public class BruteForceSolver extends Solver {
     public static class AdvancedRoute extends Route {
 
         public Node lastCapture;
+        // For round trips (start is end), a route reversed is just as good, so only one direction
+        //  needs to be searched. Every node is first visited in the first half of a route or last
+        //  visited in the second half, so a route or its reverse has at least half its points by
+        //  halfway. Only that one is searched, which caps the points of every route at twice the
+        //  points it has at half the distance limit (infinite if not a round trip)
+        public double half;
+        public int halfwayPoints;
         public double distanceSinceLastCapture;
+        public BitSet visited; // node ids, shared with the previous route if nothing was captured
+        public long visitedHash; // Zobrist hash of visited
         
         public AdvancedRoute(Node root) {
+            this(root, Double.POSITIVE_INFINITY);
+        }
+
+        public AdvancedRoute(Node root, double half) {
             super(root);
+            this.half = half;
+            this.halfwayPoints = this.points;
             this.lastCapture = root;
             this.distanceSinceLastCapture = 0.0;
+            this.visited = new BitSet();
+            this.visited.set(root.id);
+            this.visitedHash = captureKey(root);
         }
 
         public AdvancedRoute(AdvancedRoute base, Link extension) {
             super(base, extension);
+            this.half = base.half;
+            this.halfwayPoints = this.distance <= this.half ? this.points : base.halfwayPoints;
             if (!base.hasVisited(node)) {
                 this.lastCapture = this.node;
                 this.distanceSinceLastCapture = 0.0;
+                this.visited = (BitSet) base.visited.clone();
+                this.visited.set(node.id);
+                this.visitedHash = base.visitedHash ^ captureKey(node);
             } else {
                 this.lastCapture = base.lastCapture;
                 this.distanceSinceLastCapture = base.distanceSinceLastCapture + extension.distance;
+                this.visited = base.visited;
+                this.visitedHash = base.visitedHash;
             }
         }
+
+        // Hash of the state this route would be in if extended to node: at node, having
+        //  visited what it has now plus node
+        public long stateHash(Node node) {
+            long hash = hasVisited(node) ? this.visitedHash : this.visitedHash ^ captureKey(node);
+            return hash ^ TranspositionTable.key(2L * node.id + 1);
+        }
+
+        private static long captureKey(Node node) {
+            return TranspositionTable.key(2L * node.id);
+        }
+
+        @Override
+        public boolean hasVisited(Node node) {
+            return this.visited.get(node.id);
+        }
     }
 
     // Exploring routes interactively, for debugging
@@ -0,0 +1,141 @@
+package solver;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import scenario.Link;
+import scenario.Route;
+import scenario.Scenario;
+
+// The state of a solve, saved to a binary file so that it can be resumed later
+// Holds the finished routes (as link ids), the upper bound, and where the search was, which
+//  is up to the solver (BruteForceSolver saves the branch it was in at every depth)
+// Only loads for the same scenario it was saved for
+public class Checkpoint {
+
+    private static final int MAGIC = 0x54555246; // "TURF"
+    private static final int VERSION = 2;
+
+    public List<Route> routes;
+    public int upperBound;
+    public int[] position; // null if the search can't be resumed, only restarted
+    public boolean finished; // the search was complete
+
+    public Checkpoint(Collection<Route> routes, int upperBound, int[] position, boolean finished) {
+        this.routes = new ArrayList<>(routes);
+        this.upperBound = upperBound;
+        this.position = position;
+        this.finished = finished;
+    }
+
+    // Writes to a temporary file first, so a crash while writing leaves the previous checkpoint
+    public void write(Path file, Scenario scenario) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeScenario(out, scenario);
+            out.writeInt(this.upperBound);
+            out.writeBoolean(this.finished);
+            out.writeInt(this.position == null ? -1 : this.position.length);
+            if (this.position != null) {
+                for (int branch : this.position) {
+                    out.writeInt(branch);
+                }
+            }
+            out.writeInt(this.routes.size());
+            for (Route route : this.routes) {
+                List<Link> links = route.getLinks();
+                out.writeInt(links.size());
+                for (Link link : links) {
+                    out.writeInt(link.id);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write checkpoint " + temporary, e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write checkpoint " + file, e);
+        }
+    }
+
+    // Returns null if there is no checkpoint file
+    public static Checkpoint read(Path file, Scenario scenario) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException("Not a checkpoint: " + file);
+            }
+            if (!readScenario(in, scenario)) {
+                throw new IllegalArgumentException("Checkpoint is for another scenario: " + file);
+            }
+            int upperBound = in.readInt();
+            boolean finished = in.readBoolean();
+            int depth = in.readInt();
+            int[] position = null;
+            if (depth >= 0) {
+                position = new int[depth];
+                for (int i = 0; i < depth; i++) {
+                    position[i] = in.readInt();
+                }
+            }
+            int count = in.readInt();
+            List<Route> routes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Route route = new Route(scenario.start);
+                int links = in.readInt();
+                for (int j = 0; j < links; j++) {
+                    route = new Route(route, scenario.linkArray[in.readInt()]);
+                }
+                routes.add(route);
+            }
+            return new Checkpoint(routes, upperBound, position, finished);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't read checkpoint " + file, e);
+        }
+    }
+
+    // A hash of the scenario's graph (see Scenario.write): node names and points, link ids and
+    //  distances, start, end and distance limit, so a checkpoint never loads into a scenario
+    //  that changed in any way, such as zones that are worth different points by now
+    private static byte[] fingerprint(Scenario scenario) {
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(serialized)) {
+            scenario.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(serialized.toByteArray());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeScenario(DataOutputStream out, Scenario scenario) throws IOException {
+        out.write(fingerprint(scenario));
+    }
+
+    private static boolean readScenario(DataInputStream in, Scenario scenario) throws IOException {
+        byte[] expected = fingerprint(scenario);
+        byte[] actual = new byte[expected.length];
+        in.readFully(actual);
+        return Arrays.equals(actual, expected);
+    }
+}
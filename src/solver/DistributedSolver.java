@@ -0,0 +1,371 @@
+package solver;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import scenario.Route;
+import scenario.Scenario;
+import util.Logging;
+
+// Splits BruteForceSolver's search over several worker processes (see DistributedWorker), for
+//  exact solves too large for the threads of one JVM
+// Starts the workers on this machine and talks to them over local sockets: every worker gets the
+//  scenario (serialized once), then subtrees of the search tree (work units) to search, a few at
+//  a time so it never waits for the next one
+// Every new best route a worker finds is sent back and its points are sent to all workers, so
+//  every worker prunes with the best route of all of them
+// The units of a worker that dies are handed out to the others again, or searched here if none
+//  are left
+// Only finds the best route, not the whole front
+public class DistributedSolver extends Solver {
+
+    // messages to workers
+    static final byte SCENARIO = 1; // length and bytes of the serialized scenario
+    static final byte UNIT = 2; // unit id, amount of links and link ids
+    static final byte BOUND = 3; // points of the best route so far
+    static final byte STOP = 4;
+    // messages from workers
+    static final byte ROUTE = 5; // amount of links and link ids of a new best route
+    static final byte DONE = 6; // unit id, searched completely
+
+    // for tweaking
+    private final int UNITS_PER_WORKER = 16; // more units balance better, but split the tree deeper
+    private final int QUEUED_UNITS = 2; // per worker
+    private final int CONNECT_TIMEOUT = 30_000; // ms, for workers to start up and connect
+    private final long POLL_INTERVAL = 10; // ms, between checks of the time limit
+
+    private final int workers;
+
+    // of the current solve
+    private BruteForceSolver splitter; // also searches units if every worker dies
+    private List<int[]> units;
+    private Deque<Integer> queue; // ids of units not handed out yet
+    private CountDownLatch remaining; // units not searched yet
+    private List<Connection> connections;
+    private volatile boolean solving;
+
+    public DistributedSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public DistributedSolver(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Need at least 1 worker");
+        }
+        this.workers = workers;
+    }
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        long end = super.endTime(timeLimit);
+        this.splitter = new BruteForceSolver();
+        this.splitter.shareRoutesWith(this);
+        this.connections = new CopyOnWriteArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        this.solving = true;
+        try (ServerSocket server = new ServerSocket(0, this.workers, InetAddress.getLoopbackAddress())) {
+            this.splitter.prepareUnits(scenario);
+            this.upperBound = this.splitter.upperBound;
+            this.units = this.splitter.split(UNITS_PER_WORKER * this.workers);
+            this.queue = new ArrayDeque<>();
+            for (int i = 0; i < this.units.size(); i++) {
+                this.queue.add(i);
+            }
+            this.remaining = new CountDownLatch(this.units.size());
+            // Splitting may have searched the whole tree already
+            if (!this.units.isEmpty()) {
+                ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(serialized)) {
+                    scenario.write(out);
+                }
+                for (int i = 0; i < this.workers; i++) {
+                    processes.add(launch(server.getLocalPort()));
+                }
+                connect(server, serialized.toByteArray(), processes, end);
+            }
+            while (!this.remaining.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (this.provenOptimal || this.control.isCancelled()
+                        || (end != SearchControl.NO_DEADLINE && System.nanoTime() - end > 0)) {
+                    break;
+                }
+                if (this.connections.stream().noneMatch(connection -> connection.alive)) {
+                    searchHere(end);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't run workers", e);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.solving = false;
+            for (Connection connection : this.connections) {
+                connection.end();
+            }
+            for (Process process : processes) {
+                process.destroy();
+            }
+            this.splitter.shareRoutesWith(null);
+        }
+        // Every unit was searched, so nothing can beat the best route
+        if (this.remaining.getCount() == 0) {
+            proveOptimal();
+        }
+        return result();
+    }
+
+    // A worker process running the same classes as this one
+    private Process launch(int port) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(
+            java, "-cp", System.getProperty("java.class.path"), DistributedWorker.class.getName(),
+            InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(port)
+        )
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+
+    // Workers get to work as soon as they connect, without waiting for the others
+    // Goes on with the workers that connected if the others don't in time (or before the time
+    //  limit), or have exited already, e.g. because they couldn't find the classes
+    private void connect(ServerSocket server, byte[] scenario, List<Process> processes, long end) throws IOException {
+        long deadline = System.nanoTime() + CONNECT_TIMEOUT * 1_000_000L;
+        if (end != SearchControl.NO_DEADLINE && end - deadline < 0) {
+            deadline = end;
+        }
+        int connected = 0;
+        while (connected < this.workers) {
+            if (this.control.isCancelled() || this.remaining.getCount() == 0) {
+                return;
+            }
+            long left = (deadline - System.nanoTime()) / 1_000_000;
+            long running = processes.stream().filter(Process::isAlive).count();
+            long working = this.connections.stream().filter(connection -> connection.alive).count();
+            if (left <= 0 || running <= working) {
+                Logging.warn("WARNING: Only " + connected + " of " + this.workers + " workers connected");
+                return;
+            }
+            // Wakes up regularly to check the above
+            server.setSoTimeout((int) Math.min(left, POLL_INTERVAL));
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                continue;
+            }
+            socket.setTcpNoDelay(true);
+            Connection connection = new Connection(++connected, socket);
+            this.connections.add(connection);
+            connection.begin(scenario);
+        }
+    }
+
+    // Searches the units no worker is left to search
+    private void searchHere(long end) {
+        while (true) {
+            Integer id;
+            synchronized (this.queue) {
+                id = this.queue.poll();
+            }
+            if (id == null || !this.splitter.searchUnit(this.units.get(id), end)) {
+                return;
+            }
+            this.remaining.countDown();
+        }
+    }
+
+    // A worker's route, told to every worker if it's the best so far
+    private void receive(int[] links) {
+        Route route = new Route(this.scenario.start);
+        for (int id : links) {
+            route = new Route(route, this.scenario.linkArray[id]);
+        }
+        finishRoute(route);
+        Route best = this.bestRoute.get();
+        if (best == route) {
+            for (Connection connection : this.connections) {
+                connection.bound(best.points);
+            }
+        }
+    }
+
+    // A worker, with the units it has been sent but hasn't finished
+    // Reads the worker's messages on its own thread
+    private class Connection implements Runnable {
+
+        private final int number;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Set<Integer> sent = new HashSet<>();
+        public volatile boolean alive = true;
+
+        public Connection(int number, Socket socket) throws IOException {
+            this.number = number;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        // Sends the scenario and the first units
+        public void begin(byte[] scenario) {
+            try {
+                synchronized (this) {
+                    this.out.writeByte(SCENARIO);
+                    this.out.writeInt(scenario.length);
+                    this.out.write(scenario);
+                    Route best = bestRoute.get();
+                    if (best != null) {
+                        this.out.writeByte(BOUND);
+                        this.out.writeInt(best.points);
+                    }
+                    this.out.flush();
+                }
+            } catch (IOException e) {
+                died();
+                return;
+            }
+            Thread reader = new Thread(this);
+            reader.setDaemon(true);
+            reader.start();
+            fill();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte type = this.in.readByte();
+                    if (type == ROUTE) {
+                        int[] links = new int[this.in.readInt()];
+                        for (int i = 0; i < links.length; i++) {
+                            links[i] = this.in.readInt();
+                        }
+                        receive(links);
+                    } else if (type == DONE) {
+                        int id = this.in.readInt();
+                        synchronized (this) {
+                            this.sent.remove(id);
+                        }
+                        remaining.countDown();
+                        fill();
+                    } else {
+                        throw new IOException("Unknown message " + type);
+                    }
+                }
+            } catch (IOException e) {
+                died();
+            }
+        }
+
+        // Sends units until the worker has QUEUED_UNITS of them
+        public synchronized void fill() {
+            if (!this.alive) {
+                return;
+            }
+            try {
+                while (this.sent.size() < QUEUED_UNITS) {
+                    Integer id;
+                    synchronized (queue) {
+                        id = queue.poll();
+                    }
+                    if (id == null) {
+                        break;
+                    }
+                    this.sent.add(id);
+                    int[] links = units.get(id);
+                    this.out.writeByte(UNIT);
+                    this.out.writeInt(id);
+                    this.out.writeInt(links.length);
+                    for (int link : links) {
+                        this.out.writeInt(link);
+                    }
+                }
+                this.out.flush();
+            } catch (IOException e) {
+                // The reading thread notices too, and hands out the units again
+            }
+        }
+
+        public synchronized void bound(int points) {
+            if (!this.alive) {
+                return;
+            }
+            try {
+                this.out.writeByte(BOUND);
+                this.out.writeInt(points);
+                this.out.flush();
+            } catch (IOException e) {
+                // Handled by the reading thread
+            }
+        }
+
+        public void end() {
+            synchronized (this) {
+                if (!this.alive) {
+                    return;
+                }
+                this.alive = false;
+                try {
+                    this.out.writeByte(STOP);
+                    this.out.flush();
+                } catch (IOException e) {
+                    // Gone already
+                }
+            }
+            close();
+        }
+
+        // Hands the worker's units to the other workers, unless the solve is over anyway
+        private void died() {
+            List<Integer> lost;
+            synchronized (this) {
+                if (!this.alive) {
+                    return;
+                }
+                this.alive = false;
+                lost = new ArrayList<>(this.sent);
+                this.sent.clear();
+            }
+            close();
+            if (!solving) {
+                return;
+            }
+            Logging.warn("WARNING: Worker " + this.number + " died, handing out its " + lost.size() + " units again");
+            synchronized (queue) {
+                for (int id : lost) {
+                    queue.addFirst(id);
+                }
+            }
+            for (Connection connection : connections) {
+                connection.fill();
+            }
+        }
+
+        private void close() {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // Closed either way
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package solver;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import scenario.Link;
+import scenario.Route;
+import scenario.Scenario;
+
+// A worker process of DistributedSolver, which starts it as
+//  java -cp <classpath> solver.DistributedWorker <host> <port>
+// Receives the scenario, then searches the work units it's sent one at a time with a
+//  sequential BruteForceSolver, and sends back every new best route and every finished unit
+// The points of the best route of all workers are sent to it, so it prunes with those
+// Exits when told to stop, or when the connection is lost
+public class DistributedWorker {
+
+    // no more units
+    private static final int[] STOP = new int[0];
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final BruteForceSolver solver = new BruteForceSolver();
+    // unit id followed by its links
+    private final BlockingQueue<int[]> units = new LinkedBlockingQueue<>();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2) {
+            System.err.println("Usage: DistributedWorker <host> <port>");
+            System.exit(1);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            new DistributedWorker(socket).run();
+        }
+    }
+
+    private DistributedWorker(Socket socket) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    private void run() throws IOException, InterruptedException {
+        if (this.in.readByte() != DistributedSolver.SCENARIO) {
+            throw new IOException("Expected a scenario");
+        }
+        byte[] serialized = new byte[this.in.readInt()];
+        this.in.readFully(serialized);
+        Scenario scenario = Scenario.read(new DataInputStream(new ByteArrayInputStream(serialized)));
+        this.solver.prepareUnits(scenario);
+        this.solver.addListener((route, elapsed) -> sendRoute(route));
+        Thread reader = new Thread(this::read);
+        reader.setDaemon(true);
+        reader.start();
+        while (true) {
+            int[] unit = this.units.take();
+            if (unit == STOP) {
+                return;
+            }
+            int[] links = new int[unit.length - 1];
+            System.arraycopy(unit, 1, links, 0, links.length);
+            if (!this.solver.searchUnit(links, SearchControl.NO_DEADLINE)) {
+                // Stopped or proven optimal, either way there's nothing left to do
+                return;
+            }
+            synchronized (this.out) {
+                this.out.writeByte(DistributedSolver.DONE);
+                this.out.writeInt(unit[0]);
+                this.out.flush();
+            }
+        }
+    }
+
+    // Reads the coordinator's messages, while units are being searched
+    private void read() {
+        try {
+            while (true) {
+                byte type = this.in.readByte();
+                if (type == DistributedSolver.UNIT) {
+                    int id = this.in.readInt();
+                    int[] unit = new int[this.in.readInt() + 1];
+                    unit[0] = id;
+                    for (int i = 1; i < unit.length; i++) {
+                        unit[i] = this.in.readInt();
+                    }
+                    this.units.add(unit);
+                } else if (type == DistributedSolver.BOUND) {
+                    this.solver.incumbent = Math.max(this.solver.incumbent, this.in.readInt());
+                } else {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Lost the coordinator, stop the same way
+        }
+        this.solver.cancel();
+        this.units.add(STOP);
+    }
+
+    private void sendRoute(Route route) {
+        List<Link> links = route.getLinks();
+        try {
+            synchronized (this.out) {
+                this.out.writeByte(DistributedSolver.ROUTE);
+                this.out.writeInt(links.size());
+                for (Link link : links) {
+                    this.out.writeInt(link.id);
+                }
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
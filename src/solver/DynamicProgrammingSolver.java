@@ -0,0 +1,154 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// An exact solver for scenarios with few zones
+// Finds the shortest way to visit every set of zones, ending at every zone in the set,
+//  by building on the shortest ways to visit each set with one zone less (Held-Karp)
+// Travels between zones along the fastest routes, so it ignores links and crosses entirely
+// Memory use doubles with every zone, so it refuses scenarios with too many
+public class DynamicProgrammingSolver extends Solver {
+
+    // for tweaking
+    // 2^20 sets * 20 zones * 4 bytes = 80 MB
+    public static final int MAX_ZONES = 20;
+
+    private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+
+        // Only zones within reach can be part of a route
+        Node[] zones = reachableZones();
+        int n = zones.length;
+        if (n > MAX_ZONES) {
+            throw new IllegalArgumentException(
+                "Too many zones for DynamicProgrammingSolver: " + n + " (max " + MAX_ZONES + ")"
+            );
+        }
+        Node start = scenario.start;
+        Node finish = scenario.end;
+        float limit = (float) scenario.distanceLimit;
+        float[] fromStart = new float[n];
+        float[] toEnd = new float[n];
+        float[][] between = new float[n][n];
+        int[] points = new int[n];
+        for (int i = 0; i < n; i++) {
+            fromStart[i] = (float) this.distances[start.id][zones[i].id];
+            toEnd[i] = (float) this.distances[zones[i].id][finish.id];
+            for (int j = 0; j < n; j++) {
+                between[i][j] = (float) this.distances[zones[i].id][zones[j].id];
+            }
+            points[i] = zones[i].points;
+        }
+        int basePoints = start.points + (start == finish ? 0 : finish.points);
+
+        // The shortest distance from start that visits the zones in set, ending at zone last
+        //  is stored at [set * n + last]
+        int sets = 1 << n;
+        float[] shortest = new float[sets * n];
+        Arrays.fill(shortest, INFINITY);
+        int[] setPoints = new int[sets];
+        for (int i = 0; i < n; i++) {
+            shortest[(1 << i) * n + i] = fromStart[i];
+        }
+
+        // The best finished route per amount of points, as set and last zone
+        int maxPoints = basePoints + Arrays.stream(points).sum();
+        float[] bestDistance = new float[maxPoints + 1];
+        int[] bestSet = new int[maxPoints + 1];
+        int[] bestLast = new int[maxPoints + 1];
+        Arrays.fill(bestDistance, INFINITY);
+        bestDistance[basePoints] = (float) this.distances[start.id][finish.id];
+        bestSet[basePoints] = 0;
+        bestLast[basePoints] = -1;
+
+        // Every set is built from smaller sets, so go through them in increasing order
+        boolean complete = true;
+        for (int set = 1; set < sets; set++) {
+            if ((set & 0xfff) == 0 && shouldStop(end)) {
+                complete = false;
+                break;
+            }
+            int lowest = Integer.numberOfTrailingZeros(set);
+            setPoints[set] = setPoints[set & (set - 1)] + points[lowest];
+            int total = basePoints + setPoints[set];
+            for (int last = 0; last < n; last++) {
+                float distance = shortest[set * n + last];
+                if (distance == INFINITY) {
+                    continue;
+                }
+                // Finish here
+                float finished = distance + toEnd[last];
+                if (finished < bestDistance[total]) {
+                    bestDistance[total] = finished;
+                    bestSet[total] = set;
+                    bestLast[total] = last;
+                }
+                // Or extend to another zone, if the end can still be reached in time
+                for (int next = 0; next < n; next++) {
+                    if ((set & (1 << next)) != 0) {
+                        continue;
+                    }
+                    float extended = distance + between[last][next];
+                    if (extended + toEnd[next] > limit) {
+                        continue;
+                    }
+                    int index = (set | (1 << next)) * n + next;
+                    if (extended < shortest[index]) {
+                        shortest[index] = extended;
+                    }
+                }
+            }
+        }
+
+        // Expand the best finished routes into real routes, most points first
+        for (int total = maxPoints; total >= 0; total--) {
+            if (bestDistance[total] == INFINITY) {
+                continue;
+            }
+            List<Node> order = new ArrayList<>();
+            int set = bestSet[total];
+            int last = bestLast[total];
+            while (set != 0) {
+                order.add(0, zones[last]);
+                int previousSet = set & ~(1 << last);
+                if (previousSet == 0) {
+                    break;
+                }
+                // Find the zone this one was reached from
+                float distance = shortest[set * n + last];
+                for (int previous = 0; previous < n; previous++) {
+                    if ((previousSet & (1 << previous)) != 0
+                        && shortest[previousSet * n + previous] + between[previous][last] == distance) {
+                        last = previous;
+                        break;
+                    }
+                }
+                set = previousSet;
+            }
+            order.add(0, start);
+            order.add(finish);
+            Route route = fastestRouteThrough(order);
+            // Rounding could theoretically push a route just over the limit
+            if (route.distance > scenario.distanceLimit) {
+                continue;
+            }
+            finishRoute(route);
+        }
+
+        // Every set has been tried, so nothing can beat the best route
+        if (complete) {
+            proveOptimal();
+        }
+        return result();
+    }
+}
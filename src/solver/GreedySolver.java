@@ -24,9 +24,10 @@ public class GreedySolver extends Solver {
 
     public Result solve(Scenario scenario, Long timeLimit) {
         this.scenario = scenario;
-        this.finishedRoutes = new HashMap<>();
-        this.bestRoute = null;
+        initFinishedRoutes();
         findCrosses();
+        findDistances();
+        findUpperBound();
         // create graph of direct connections
         this.connections = new HashMap<>();
         for (Node node : scenario.nodes) {
@@ -41,15 +42,16 @@ public class GreedySolver extends Solver {
         long end = super.endTime(timeLimit);
         Route start = new Route(scenario.start);
         search(start, end);
-        return new Result(finishedRoutes.values(), scenario.speed);
+        return result();
     }
 
     // Recursively searches for valid, finished routes
     // Divides its lifespan equally among its branches, unless that goes below
     //   the minimum lifespan, in which case it will simply run until endTime
+    //   (as it also does without an end time)
     // Will not try to run if endTime has passed
     private void search(Route base, long endTime) {
-        if (System.currentTimeMillis() > endTime) {
+        if (shouldStop(endTime)) {
             return;
         }
         Node current = base.node;
@@ -61,11 +63,12 @@ public class GreedySolver extends Solver {
             .toList();
         // Get lifespans/endtimes for each branch
         int branches = SEARCH_WIDTH;
-        long now = System.currentTimeMillis();
+        // End times are in ns, the last time read by shouldStop is recent enough for this
+        long now = this.control.time();
         long lifespan = endTime - now;
         long branchLifespan = lifespan / branches;
         long nextBranchEnd;
-        if (branchLifespan >= MIN_LIFESPAN) {
+        if (endTime != SearchControl.NO_DEADLINE && branchLifespan >= MIN_LIFESPAN * 1_000_000) {
             long branchLifespanRemainder = lifespan % branches; // gotta account for all time
             nextBranchEnd = now + branchLifespan + branchLifespanRemainder;
         } else {
@@ -74,7 +77,7 @@ public class GreedySolver extends Solver {
             nextBranchEnd = endTime;
         }
         for (Node nextNode : nearestNodes) {
-            if (System.currentTimeMillis() > endTime) {
+            if (shouldStop(endTime)) {
                 return;
             }
             if (nextNode == current) {
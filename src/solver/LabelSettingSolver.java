@@ -0,0 +1,266 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import scenario.Link;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// An exact solver that treats routes as paths with a limited resource (distance)
+// Every node keeps a set of labels, each one the end of a partial route: its distance, points
+//  and captured zones
+// Labels are extended along links in order of distance, and a label is thrown away when another
+//  label at the same node has captured the same zones or more in the same distance or less,
+//  since anything it could go on to do, the other label could do at least as well
+// Also throws away labels that can't finish with more points than the best route so far
+// Labels are stored in arrays rather than as objects, to keep the garbage collector out of it
+public class LabelSettingSolver extends Solver {
+
+    // Labels, indexed by label id
+    private int labelCount;
+    private int[] labelNode; // node id
+    private int[] labelParent; // label id, -1 for the first label
+    private int[] labelLink; // link id from the parent, -1 for the first label
+    private double[] labelDistance;
+    private int[] labelPoints;
+    private long[] labelCaptured; // words zone bitsets, one after the other
+    private boolean[] labelDominated;
+    private int words;
+
+    // Label ids of the labels at each node that haven't been dominated yet, by node id
+    private int[][] nodeLabels;
+    private int[] nodeLabelCount;
+
+    // Label ids waiting to be extended, as a binary min-heap by distance
+    private int[] heap;
+    private int heapSize;
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findBounds();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+        initLabels();
+
+        Node start = scenario.start;
+        Node finish = scenario.end;
+        long[] captured = new long[this.words];
+        capture(captured, start);
+        int root = addLabel(start.id, -1, -1, 0.0, start.points, captured);
+        if (start == finish) {
+            finish(root);
+        }
+        push(root);
+        long[] childCaptured = new long[this.words];
+        // The captures of the label being extended, for upperBound
+        BitSet visited = new BitSet(scenario.nodeArray.length);
+        boolean complete = true;
+        while (this.heapSize > 0) {
+            if (shouldStop(end)) {
+                complete = false;
+                break;
+            }
+            int label = pop();
+            if (this.labelDominated[label]) {
+                continue;
+            }
+            Node node = scenario.nodeArray[this.labelNode[label]];
+            int offset = label * this.words;
+            copyCaptured(offset, visited);
+            for (Link link : node.out) {
+                Node next = link.neighbor;
+                // Can't be finished without exceeding the distance limit
+                double distance = this.labelDistance[label] + link.distance;
+                if (distance + this.distances[next.id][finish.id] > scenario.distanceLimit) {
+                    continue;
+                }
+                int points = this.labelPoints[label] + (isCaptured(offset, next) ? 0 : next.points);
+                // Can't finish with as many points as the best route so far
+                //  (or when finding the whole front, can't finish without being beaten by a route in it)
+                Route best = this.bestRoute.get();
+                if (best != null) {
+                    double cutoff = findsWholeFront() ? Double.POSITIVE_INFINITY : best.points;
+                    double bound = upperBound(next, distance, points, visited, cutoff);
+                    if (!couldImprove(bound, distance + this.distances[next.id][finish.id])) {
+                        continue;
+                    }
+                }
+                System.arraycopy(this.labelCaptured, offset, childCaptured, 0, this.words);
+                capture(childCaptured, next);
+                if (isDominated(next.id, distance, childCaptured)) {
+                    continue;
+                }
+                int child = addLabel(next.id, label, link.id, distance, points, childCaptured);
+                if (next == finish) {
+                    finish(child);
+                }
+                push(child);
+            }
+        }
+
+        // Every label was extended, so nothing can beat the best route
+        if (complete) {
+            proveOptimal();
+        }
+        return result();
+    }
+
+    // Zero point nodes are never marked as captured, as they make no difference later on
+    private static void capture(long[] captured, Node node) {
+        if (node.points > 0) {
+            captured[node.id >>> 6] |= 1L << node.id;
+        }
+    }
+
+    // Whether the zone bitset at offset in the labels' bitsets has the node
+    private boolean isCaptured(int offset, Node node) {
+        return (this.labelCaptured[offset + (node.id >>> 6)] & 1L << node.id) != 0;
+    }
+
+    // Sets visited to the zone bitset at offset in the labels' bitsets, one set bit at a time
+    private void copyCaptured(int offset, BitSet visited) {
+        visited.clear();
+        for (int w = 0; w < this.words; w++) {
+            for (long word = this.labelCaptured[offset + w]; word != 0; word &= word - 1) {
+                visited.set(w * 64 + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+
+    // Whether a label at the node dominates a new label with the given distance and captures,
+    //  otherwise discards the labels at the node the new label dominates
+    private boolean isDominated(int node, double distance, long[] captured) {
+        int[] labels = this.nodeLabels[node];
+        int count = this.nodeLabelCount[node];
+        for (int i = 0; i < count; i++) {
+            int other = labels[i];
+            int offset = other * this.words;
+            double otherDistance = this.labelDistance[other];
+            if (otherDistance <= distance && contains(this.labelCaptured, offset, captured, 0)) {
+                return true;
+            }
+            if (distance <= otherDistance && contains(captured, 0, this.labelCaptured, offset)) {
+                this.labelDominated[other] = true;
+                labels[i] = labels[--count];
+                i--;
+            }
+        }
+        this.nodeLabelCount[node] = count;
+        return false;
+    }
+
+    // Whether the bitset in a at aOffset has every bit of the bitset in b at bOffset
+    private boolean contains(long[] a, int aOffset, long[] b, int bOffset) {
+        for (int w = 0; w < this.words; w++) {
+            if ((b[bOffset + w] & ~a[aOffset + w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Finish the label's route, if that would be an improvement
+    private void finish(int label) {
+        if (this.finishedRoutes.isDominated(this.labelPoints[label], this.labelDistance[label])) {
+            return;
+        }
+        List<Link> links = new ArrayList<>();
+        for (int l = label; this.labelLink[l] >= 0; l = this.labelParent[l]) {
+            links.add(0, this.scenario.linkArray[this.labelLink[l]]);
+        }
+        Route route = new Route(this.scenario.start);
+        for (Link link : links) {
+            route = new Route(route, link);
+        }
+        finishRoute(route);
+    }
+
+    private void initLabels() {
+        int nodes = this.scenario.nodeArray.length;
+        this.words = (nodes + 63) / 64;
+        int capacity = 1024;
+        this.labelCount = 0;
+        this.labelNode = new int[capacity];
+        this.labelParent = new int[capacity];
+        this.labelLink = new int[capacity];
+        this.labelDistance = new double[capacity];
+        this.labelPoints = new int[capacity];
+        this.labelCaptured = new long[capacity * this.words];
+        this.labelDominated = new boolean[capacity];
+        this.nodeLabels = new int[nodes][4];
+        this.nodeLabelCount = new int[nodes];
+        this.heap = new int[capacity];
+        this.heapSize = 0;
+    }
+
+    private int addLabel(int node, int parent, int link, double distance, int points, long[] captured) {
+        if (this.labelCount == this.labelNode.length) {
+            int capacity = this.labelCount * 2;
+            this.labelNode = Arrays.copyOf(this.labelNode, capacity);
+            this.labelParent = Arrays.copyOf(this.labelParent, capacity);
+            this.labelLink = Arrays.copyOf(this.labelLink, capacity);
+            this.labelDistance = Arrays.copyOf(this.labelDistance, capacity);
+            this.labelPoints = Arrays.copyOf(this.labelPoints, capacity);
+            this.labelCaptured = Arrays.copyOf(this.labelCaptured, capacity * this.words);
+            this.labelDominated = Arrays.copyOf(this.labelDominated, capacity);
+        }
+        int label = this.labelCount++;
+        this.labelNode[label] = node;
+        this.labelParent[label] = parent;
+        this.labelLink[label] = link;
+        this.labelDistance[label] = distance;
+        this.labelPoints[label] = points;
+        System.arraycopy(captured, 0, this.labelCaptured, label * this.words, this.words);
+        this.labelDominated[label] = false;
+        if (this.nodeLabelCount[node] == this.nodeLabels[node].length) {
+            this.nodeLabels[node] = Arrays.copyOf(this.nodeLabels[node], this.nodeLabelCount[node] * 2);
+        }
+        this.nodeLabels[node][this.nodeLabelCount[node]++] = label;
+        return label;
+    }
+
+    private void push(int label) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+        }
+        int i = this.heapSize++;
+        double distance = this.labelDistance[label];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (this.labelDistance[this.heap[parent]] <= distance) {
+                break;
+            }
+            this.heap[i] = this.heap[parent];
+            i = parent;
+        }
+        this.heap[i] = label;
+    }
+
+    private int pop() {
+        int top = this.heap[0];
+        int last = this.heap[--this.heapSize];
+        double distance = this.labelDistance[last];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= this.heapSize) {
+                break;
+            }
+            if (child + 1 < this.heapSize
+                && this.labelDistance[this.heap[child + 1]] < this.labelDistance[this.heap[child]]) {
+                child++;
+            }
+            if (this.labelDistance[this.heap[child]] >= distance) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+        this.heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,177 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import scenario.Link;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+import solver.BruteForceSolver.AdvancedRoute;
+
+// Repeatedly removes the zones in a random part of the best route so far, and then finds the
+//  best way to reconnect the rest of the route using BruteForceSolver, only allowing it to
+//  capture the removed zones and unvisited zones nearby (a large neighborhood search)
+// Each repair is exact, but small enough to be quick even if the whole scenario is far too
+//  large to brute force
+// Starts from the fastest route from start to end and stops when it hasn't found a better
+//  route in a long while
+public class LargeNeighborhoodSolver extends Solver {
+
+    // for tweaking
+    private final long SEED = 0;
+    private final int REGION_SIZE = 12; // zones a repair may capture
+    private final int MAX_REMOVED = 8; // zones removed from the route
+    private final double RADIUS = 0.3; // fraction of the distance limit, for removed zones
+    private final long REPAIR_TIME_LIMIT = 2000; // ms
+    private final int STALL_LIMIT = 500; // repairs without improvement
+
+    private BruteForceSolver repairer;
+    private Random random;
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        // The repairer shares the scenario precalculations
+        // It also shares this solver's storage (which repairs don't touch), so it stops when this
+        //  solver is cancelled or stopped rather than at the end of the repair's time limit
+        this.repairer = new BruteForceSolver();
+        this.repairer.shareRoutesWith(this);
+        this.repairer.prepare(scenario);
+        this.distances = this.repairer.distances;
+        this.upperBound = this.repairer.upperBound;
+        long end = super.endTime(timeLimit);
+        this.random = new Random(SEED);
+
+        Route incumbent = scenario.fastestRoutes.get(scenario.start).get(scenario.end);
+        if (incumbent.distance > scenario.distanceLimit) {
+            // Then no route fits the distance limit
+            return result();
+        }
+        finishRoute(incumbent);
+        int sinceImprovement = 0;
+        while (!shouldStop(end) && sinceImprovement < STALL_LIMIT) {
+            Route next = destroyAndRepair(incumbent, end);
+            if (isBetter(next, incumbent)) {
+                incumbent = next;
+                finishRoute(incumbent);
+                sinceImprovement = 0;
+            } else {
+                sinceImprovement++;
+            }
+        }
+        return result();
+    }
+
+    // Removes and repairs a random part of the route
+    // Returns the repaired route, which is never worse than the original
+    private Route destroyAndRepair(Route route, long endTime) {
+        Node[] nodes = this.scenario.nodeArray;
+        List<Link> links = route.getLinks();
+        // Positions in links after which each stop (captured zone, or the final end) is reached
+        List<Integer> stops = new ArrayList<>();
+        stops.add(0);
+        AdvancedRoute walk = new AdvancedRoute(this.scenario.start);
+        for (int i = 0; i < links.size(); i++) {
+            boolean captures = !walk.hasVisited(links.get(i).neighbor);
+            walk = new AdvancedRoute(walk, links.get(i));
+            if (captures || i == links.size() - 1) {
+                stops.add(i + 1);
+            }
+        }
+        if (stops.size() == 1) {
+            // The route never leaves the start
+            stops.add(0);
+        }
+        int last = stops.size() - 1;
+
+        // Pick a random stop and remove the stops closest to it next to it in the route
+        int center = this.random.nextInt(stops.size());
+        Node centerNode = stopNode(links, stops.get(center));
+        double radius = this.scenario.distanceLimit * RADIUS;
+        // Stops from to to are removed, none if to is before from
+        int from;
+        int to;
+        if (center == 0) {
+            from = 1;
+            to = 0;
+        } else if (center == last) {
+            from = last;
+            to = last - 1;
+        } else {
+            from = center;
+            to = center;
+            // Start and end can't be removed
+            while (to - from + 1 < MAX_REMOVED) {
+                double beforeDistance = from - 1 >= 1
+                    ? this.distances[centerNode.id][stopNode(links, stops.get(from - 1)).id]
+                    : Double.POSITIVE_INFINITY;
+                double afterDistance = to + 1 <= last - 1
+                    ? this.distances[centerNode.id][stopNode(links, stops.get(to + 1)).id]
+                    : Double.POSITIVE_INFINITY;
+                if (Math.min(beforeDistance, afterDistance) > radius) {
+                    break;
+                }
+                if (beforeDistance <= afterDistance) {
+                    from--;
+                } else {
+                    to++;
+                }
+            }
+        }
+        int baseEnd = stops.get(from - 1);
+        int segmentEnd = stops.get(to + 1);
+
+        // Rebuild the route up to the repair, and the original repaired part
+        AdvancedRoute base = new AdvancedRoute(this.scenario.start);
+        for (int i = 0; i < baseEnd; i++) {
+            base = new AdvancedRoute(base, links.get(i));
+        }
+        AdvancedRoute original = base;
+        for (int i = baseEnd; i < segmentEnd; i++) {
+            original = new AdvancedRoute(original, links.get(i));
+        }
+        double suffixDistance = route.distance - original.distance;
+        Node target = original.node;
+
+        // The repair may capture the removed zones and the closest unvisited zones
+        Set<Node> region = new HashSet<>();
+        for (int i = from; i <= to; i++) {
+            region.add(stopNode(links, stops.get(i)));
+        }
+        List<Node> nearby = new ArrayList<>();
+        for (Node node : nodes) {
+            if (!route.hasVisited(node) && node.points > 0) {
+                nearby.add(node);
+            }
+        }
+        nearby.sort(Comparator.comparingDouble(node -> this.distances[centerNode.id][node.id]));
+        for (Node node : nearby) {
+            if (region.size() >= REGION_SIZE) {
+                break;
+            }
+            region.add(node);
+        }
+
+        long repairEnd = Math.min(endTime, SearchControl.deadline(REPAIR_TIME_LIMIT));
+        AdvancedRoute repaired = this.repairer.repair(
+            base, original, target, this.scenario.distanceLimit - suffixDistance, region, repairEnd
+        );
+        if (repaired == original) {
+            return route;
+        }
+        // Reattach the rest of the route
+        Route result = repaired;
+        for (int i = segmentEnd; i < links.size(); i++) {
+            result = new Route(result, links.get(i));
+        }
+        return result;
+    }
+
+    // The node reached after the given number of links
+    private Node stopNode(List<Link> links, int position) {
+        return position == 0 ? this.scenario.start : links.get(position - 1).neighbor;
+    }
+}
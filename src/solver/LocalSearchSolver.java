@@ -0,0 +1,89 @@
+package solver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+import solver.TourSearch.Tour;
+
+// Improves a sequence of zones with small changes until no change helps (a local search),
+//  then shakes it up by removing random zones and improves it again (an iterated local search),
+//  see TourSearch
+// Starts over from scratch every now and then, and stops when it hasn't found a better
+//  route in a long while
+// Travels between zones along the fastest routes, so it ignores links and crosses entirely
+public class LocalSearchSolver extends Solver {
+
+    // for tweaking
+    private final long SEED = 0;
+    private final int RESTART_INTERVAL = 200; // perturbations without improvement
+    private final int STALL_LIMIT = 20000; // perturbations without improvement
+
+    private TourSearch search;
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+        this.search = new TourSearch(
+            scenario, this.distances, reachableZones(), scenario.distanceLimit, new Random(SEED)
+        );
+
+        Tour best = this.search.direct(scenario.start, scenario.end, true, true);
+        this.search.improve(best, new boolean[scenario.nodeArray.length]);
+        finish(best);
+        Tour current = best.copy();
+        int sinceImprovement = 0;
+        int sinceRestart = 0;
+        while (!shouldStop(end) && sinceImprovement < STALL_LIMIT) {
+            Tour next;
+            if (sinceRestart >= RESTART_INTERVAL) {
+                next = this.search.direct(scenario.start, scenario.end, true, true);
+                sinceRestart = 0;
+            } else {
+                next = current.copy();
+            }
+            // Zones that were just removed can't be put back right away, or the tour would
+            //  often go straight back to what it was
+            boolean[] tabu = this.search.perturb(next);
+            this.search.improve(next, tabu);
+            this.search.improve(next, new boolean[tabu.length]);
+            finish(next);
+            if (next.isBetterThan(best)) {
+                best = next.copy();
+                sinceImprovement = 0;
+                sinceRestart = 0;
+            } else {
+                sinceImprovement++;
+                sinceRestart++;
+            }
+            // Keep exploring from the new tour unless it's much worse than the best
+            if (next.isBetterThan(current) || next.points * 10 >= best.points * 9) {
+                current = next;
+            } else {
+                current = best.copy();
+            }
+        }
+        return result();
+    }
+
+    // Finish the tour as a route, if that would be an improvement
+    // Changes keep tours within the distance limit, but the direct tour may not be, in which
+    //  case no tour is and there's no route
+    private void finish(Tour tour) {
+        if (this.finishedRoutes.contains(tour.points, tour.distance)) {
+            return;
+        }
+        List<Node> order = new ArrayList<>();
+        for (int i = 0; i < tour.size; i++) {
+            order.add(this.scenario.nodeArray[tour.nodes[i]]);
+        }
+        Route route = fastestRouteThrough(order);
+        if (route.distance <= this.scenario.distanceLimit) {
+            finishRoute(route);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// Grows a tree of partial routes, one zone per level, towards the branches whose routes
+//  have scored the most points so far (a Monte Carlo tree search)
+// Each round picks a leaf by balancing good average scores against rarely tried branches (UCT),
+//  adds its children, and scores one of them by finishing its route greedily, always going
+//  to the nearest unvisited zone that still fits
+// Unlike GreedySolver, which gives every branch the same time, effort goes where the points are
+// Stops when it hasn't found a better route in a long while
+// Travels between zones along the fastest routes, so it ignores links and crosses entirely
+public class MctsSolver extends Solver {
+
+    // for tweaking
+    private final long SEED = 0;
+    private final int MAX_CHILDREN = 10; // nearest zones tried from each partial route
+    private final double EXPLORATION = 0.5; // UCT constant, scores are 0 to 1
+    private final int ROLLOUT_CHOICES = 2; // nearest zones a rollout picks between at random
+    private final int MAX_TREE_SIZE = 4_000_000; // tree nodes, stops growing after this
+    private final int STALL_LIMIT = 100_000; // rounds without improvement
+
+    // The tree, stored as arrays indexed by tree node, with the root at 0
+    // Children of a tree node are stored next to each other, all added at once
+    private int size;
+    private int[] zone; // node id
+    private int[] parent;
+    private int[] firstChild; // -1 if not expanded yet
+    private int[] childCount;
+    private double[] distance;
+    private int[] points;
+    private int[] visits;
+    private double[] totalScore;
+
+    private Random random;
+    private Node[] zones;
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+        this.random = new Random(SEED);
+        this.zones = reachableZones();
+        initTree();
+
+        Node start = scenario.start;
+        Node finish = scenario.end;
+        int basePoints = start.points + (start == finish ? 0 : finish.points);
+        addNode(start.id, -1, 0.0, basePoints);
+        boolean[] visited = new boolean[scenario.nodeArray.length];
+        List<Integer> path = new ArrayList<>();
+        int sinceImprovement = 0;
+        while (!shouldStop(end) && sinceImprovement < STALL_LIMIT) {
+            Route previousBest = this.bestRoute.get();
+            // Selection
+            Arrays.fill(visited, false);
+            visited[start.id] = true;
+            visited[finish.id] = true;
+            int current = 0;
+            while (this.firstChild[current] >= 0 && this.childCount[current] > 0) {
+                current = select(current);
+                visited[this.zone[current]] = true;
+            }
+            // Expansion
+            if (this.firstChild[current] < 0 && this.size < MAX_TREE_SIZE) {
+                expand(current, visited);
+                if (this.childCount[current] > 0) {
+                    current = this.firstChild[current] + this.random.nextInt(this.childCount[current]);
+                    visited[this.zone[current]] = true;
+                }
+            } else if (this.childCount[current] == 0 && current == 0) {
+                // Nothing but the direct route fits
+                finish(List.of(start, finish));
+                break;
+            }
+            // Rollout
+            path.clear();
+            int score = rollout(current, visited, path);
+            // Backpropagation
+            double normalized = score / (double) Math.max(1, this.upperBound);
+            for (int node = current; node >= 0; node = this.parent[node]) {
+                this.visits[node]++;
+                this.totalScore[node] += normalized;
+            }
+            sinceImprovement = this.bestRoute.get() != previousBest ? 0 : sinceImprovement + 1;
+        }
+        return result();
+    }
+
+    // The child with the best upper confidence bound
+    private int select(int node) {
+        double logVisits = Math.log(Math.max(1, this.visits[node]));
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int from = this.firstChild[node];
+        for (int child = from; child < from + this.childCount[node]; child++) {
+            if (this.visits[child] == 0) {
+                return child;
+            }
+            double value = this.totalScore[child] / this.visits[child]
+                + EXPLORATION * Math.sqrt(logVisits / this.visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Adds the nearest unvisited zones that can still be reached as children
+    private void expand(int node, boolean[] visited) {
+        double[] fromNode = this.distances[this.zone[node]];
+        int endId = this.scenario.end.id;
+        List<Node> candidates = new ArrayList<>();
+        for (Node zone : this.zones) {
+            if (visited[zone.id]) {
+                continue;
+            }
+            double extended = this.distance[node] + fromNode[zone.id];
+            if (extended + this.distances[zone.id][endId] <= this.scenario.distanceLimit) {
+                candidates.add(zone);
+            }
+        }
+        candidates.sort((a, b) -> Double.compare(fromNode[a.id], fromNode[b.id]));
+        this.firstChild[node] = this.size;
+        this.childCount[node] = Math.min(MAX_CHILDREN, candidates.size());
+        for (int i = 0; i < this.childCount[node]; i++) {
+            Node zone = candidates.get(i);
+            addNode(zone.id, node, this.distance[node] + fromNode[zone.id], this.points[node] + zone.points);
+        }
+    }
+
+    // Finishes the partial route by repeatedly going to one of the nearest unvisited zones that
+    //  still fit, and returns its points
+    private int rollout(int node, boolean[] visited, List<Integer> path) {
+        int endId = this.scenario.end.id;
+        int current = this.zone[node];
+        double distance = this.distance[node];
+        int points = this.points[node];
+        int[] nearest = new int[ROLLOUT_CHOICES];
+        double[] nearestDistance = new double[ROLLOUT_CHOICES];
+        while (true) {
+            int found = 0;
+            Arrays.fill(nearestDistance, Double.POSITIVE_INFINITY);
+            double[] fromCurrent = this.distances[current];
+            for (Node zone : this.zones) {
+                if (visited[zone.id]) {
+                    continue;
+                }
+                double step = fromCurrent[zone.id];
+                if (step >= nearestDistance[ROLLOUT_CHOICES - 1]
+                    || distance + step + this.distances[zone.id][endId] > this.scenario.distanceLimit) {
+                    continue;
+                }
+                // Insert into the sorted nearest zones
+                int i = Math.min(found, ROLLOUT_CHOICES - 1);
+                while (i > 0 && nearestDistance[i - 1] > step) {
+                    nearest[i] = nearest[i - 1];
+                    nearestDistance[i] = nearestDistance[i - 1];
+                    i--;
+                }
+                nearest[i] = zone.id;
+                nearestDistance[i] = step;
+                found = Math.min(found + 1, ROLLOUT_CHOICES);
+            }
+            if (found == 0) {
+                break;
+            }
+            int choice = this.random.nextInt(found);
+            current = nearest[choice];
+            distance += nearestDistance[choice];
+            points += this.scenario.nodeArray[current].points;
+            visited[current] = true;
+            path.add(current);
+        }
+        distance += this.distances[current][endId];
+        // Only expand into a real route if it would be an improvement
+        if (!this.finishedRoutes.contains(points, distance)) {
+            List<Node> order = new ArrayList<>();
+            for (int tree = node; tree >= 0; tree = this.parent[tree]) {
+                order.add(0, this.scenario.nodeArray[this.zone[tree]]);
+            }
+            for (int id : path) {
+                order.add(this.scenario.nodeArray[id]);
+            }
+            order.add(this.scenario.end);
+            finish(order);
+        }
+        return points;
+    }
+
+    private void finish(List<Node> order) {
+        Route route = fastestRouteThrough(order);
+        if (route.distance <= this.scenario.distanceLimit) {
+            finishRoute(route);
+        }
+    }
+
+    private void initTree() {
+        int capacity = 1024;
+        this.size = 0;
+        this.zone = new int[capacity];
+        this.parent = new int[capacity];
+        this.firstChild = new int[capacity];
+        this.childCount = new int[capacity];
+        this.distance = new double[capacity];
+        this.points = new int[capacity];
+        this.visits = new int[capacity];
+        this.totalScore = new double[capacity];
+    }
+
+    private void addNode(int zone, int parent, double distance, int points) {
+        if (this.size == this.zone.length) {
+            int capacity = this.size * 2;
+            this.zone = Arrays.copyOf(this.zone, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+            this.childCount = Arrays.copyOf(this.childCount, capacity);
+            this.distance = Arrays.copyOf(this.distance, capacity);
+            this.points = Arrays.copyOf(this.points, capacity);
+            this.visits = Arrays.copyOf(this.visits, capacity);
+            this.totalScore = Arrays.copyOf(this.totalScore, capacity);
+        }
+        this.zone[this.size] = zone;
+        this.parent[this.size] = parent;
+        this.firstChild[this.size] = -1;
+        this.childCount[this.size] = 0;
+        this.distance[this.size] = distance;
+        this.points[this.size] = points;
+        this.visits[this.size] = 0;
+        this.totalScore[this.size] = 0.0;
+        this.size++;
+    }
+}
@@ -0,0 +1,199 @@
+package solver;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import scenario.Link;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// An exact solver that searches from both ends at once (meet in the middle)
+// Finds every way to travel up to half the distance limit from the start, and from the end
+//  (backwards), then joins each half from the start with each half from the end that stops
+//  at the same node, if they fit within the distance limit together
+// Only the shortest half per node and set of captured zones is kept
+// Every route has a node where it can be split like this, so no route is missed, but each
+//  half only has to search half as deep as BruteForceSolver
+public class MeetInTheMiddleSolver extends Solver {
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        findDistances();
+        findUpperBound();
+        long end = super.endTime(timeLimit);
+
+        // A half from the start may cross the middle with its last link, so that the rest of
+        //  the route (from the node after it) is always short enough to be a half from the end
+        double half = scenario.distanceLimit / 2;
+        Map<Node, List<Half>> forward = findHalves(scenario.start, scenario.end, half, true, end);
+        Map<Node, List<Half>> backward = findHalves(scenario.end, scenario.start, half, false, end);
+        boolean complete = !shouldStop(end);
+
+        // Join the halves, most points first so hopeless pairs can be skipped
+        // When finding the whole front, pairs with fewer points than the best route can't be skipped
+        boolean front = findsWholeFront();
+        Comparator<Half> byPoints = Comparator.comparingInt((Half h) -> h.points).reversed();
+        for (Node node : forward.keySet()) {
+            if (shouldStop(end)) {
+                complete = false;
+                break;
+            }
+            List<Half> fromStart = forward.get(node);
+            List<Half> fromEnd = backward.get(node);
+            if (fromEnd == null) {
+                continue;
+            }
+            fromStart.sort(byPoints);
+            fromEnd.sort(byPoints);
+            // Pairs with as many points as the best route may still be shorter (join skips
+            //  those that aren't)
+            for (Half first : fromStart) {
+                if (!front && first.points + fromEnd.get(0).points < bestPoints()) {
+                    break;
+                }
+                for (Half second : fromEnd) {
+                    if (!front && first.points + second.points < bestPoints()) {
+                        break;
+                    }
+                    if (first.distance + second.distance > scenario.distanceLimit) {
+                        continue;
+                    }
+                    join(first, second);
+                }
+            }
+        }
+
+        // Every pair of halves was tried, so nothing can beat the best route
+        if (complete) {
+            proveOptimal();
+        }
+        return result();
+    }
+
+    // Finds the shortest half per node and set of captured zones, from root towards (or if not
+    //  forwards, backwards from) other, in order of distance
+    // Halves going forwards may go past half with their last link, halves going backwards may not
+    // Returns the halves by the node they stop at
+    private Map<Node, List<Half>> findHalves(Node root, Node other, double half, boolean forwards, long endTime) {
+        Map<Node, Map<BitSet, Half>> shortest = new HashMap<>();
+        PriorityQueue<Half> queue = new PriorityQueue<>(Comparator.comparingDouble((Half h) -> h.distance));
+        Half first = new Half(root);
+        shortest.computeIfAbsent(root, k -> new HashMap<>()).put(first.visited, first);
+        queue.add(first);
+        while (!queue.isEmpty() && !shouldStop(endTime)) {
+            Half base = queue.poll();
+            if (shortest.get(base.node).get(base.visited) != base) {
+                // A shorter way to the same state has been found since
+                continue;
+            }
+            if (base.distance > half) {
+                continue;
+            }
+            for (Link link : base.node.out) {
+                Node next = link.neighbor;
+                // Backwards, the route travels the reverse link
+                double distance = base.distance + (forwards ? link.distance : link.reverse.distance);
+                if (!forwards && distance > half) {
+                    continue;
+                }
+                // Can't be finished without exceeding the distance limit
+                double rest = forwards ? this.distances[next.id][other.id] : this.distances[other.id][next.id];
+                if (distance + rest > this.scenario.distanceLimit) {
+                    continue;
+                }
+                Half extended = new Half(base, link, distance);
+                Map<BitSet, Half> sameNode = shortest.computeIfAbsent(next, k -> new HashMap<>());
+                Half existing = sameNode.get(extended.visited);
+                if (existing == null || distance < existing.distance) {
+                    sameNode.put(extended.visited, extended);
+                    queue.add(extended);
+                }
+            }
+        }
+        Map<Node, List<Half>> halves = new HashMap<>();
+        for (Map.Entry<Node, Map<BitSet, Half>> entry : shortest.entrySet()) {
+            halves.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+        }
+        return halves;
+    }
+
+    private int bestPoints() {
+        Route best = this.bestRoute.get();
+        return best == null ? 0 : best.points;
+    }
+
+    // Finish the route made of both halves, if that would be an improvement
+    private void join(Half first, Half second) {
+        // Zones captured by both halves (always including the node they meet at) count once
+        int points = first.points + second.points;
+        BitSet visited = second.visited;
+        for (int id = visited.nextSetBit(0); id >= 0; id = visited.nextSetBit(id + 1)) {
+            if (first.visited.get(id)) {
+                points -= this.scenario.nodeArray[id].points;
+            }
+        }
+        if (this.finishedRoutes.isDominated(points, first.distance + second.distance)) {
+            return;
+        }
+        Route route = new Route(this.scenario.start);
+        for (Link link : first.getLinks()) {
+            route = new Route(route, link);
+        }
+        // The half from the end is walked in reverse, from where the halves meet
+        List<Link> back = second.getLinks();
+        for (int i = back.size() - 1; i >= 0; i--) {
+            route = new Route(route, back.get(i).reverse);
+        }
+        finishRoute(route);
+    }
+
+    // Half of a route, from the start or from the end
+    private static class Half {
+
+        public Half previous;
+        public Link link; // from previous, in the direction the half was searched in
+        public Node node;
+        public double distance;
+        public int points;
+        public BitSet visited; // node ids
+
+        public Half(Node root) {
+            this.previous = null;
+            this.link = null;
+            this.node = root;
+            this.distance = 0.0;
+            this.points = root.points;
+            this.visited = new BitSet();
+            this.visited.set(root.id);
+        }
+
+        public Half(Half base, Link link, double distance) {
+            this.previous = base;
+            this.link = link;
+            this.node = link.neighbor;
+            this.distance = distance;
+            if (base.visited.get(this.node.id)) {
+                this.points = base.points;
+                this.visited = base.visited;
+            } else {
+                this.points = base.points + this.node.points;
+                this.visited = (BitSet) base.visited.clone();
+                this.visited.set(this.node.id);
+            }
+        }
+
+        // In the direction the half was searched in
+        public List<Link> getLinks() {
+            List<Link> links = new ArrayList<>();
+            for (Half half = this; half.link != null; half = half.previous) {
+                links.add(0, half.link);
+            }
+            return links;
+        }
+    }
+}
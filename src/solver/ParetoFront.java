@@ -0,0 +1,79 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import scenario.Route;
+
+// The finished routes that no other finished route beats, by having at least as many points
+//  in at most the same distance (the Pareto front of points versus distance)
+// Ordered by points, which also orders them by distance, since a route with more points
+//  but no more distance than another would beat it
+// The best route for any shorter distance limit is in the front as well
+// Safe to add routes from multiple threads at once, and reads never wait for adds
+public class ParetoFront {
+
+    // points -> route
+    private final ConcurrentSkipListMap<Integer, Route> routes = new ConcurrentSkipListMap<>();
+
+    // Whether a route with points in distance would be beaten (or equaled) by a route in the front
+    public boolean isDominated(double points, double distance) {
+        Map.Entry<Integer, Route> entry = this.routes.ceilingEntry((int) Math.ceil(points));
+        return entry != null && entry.getValue().distance <= distance;
+    }
+
+    // Whether the front has a route with exactly these points in at most distance
+    // For skipping routes whose points are only estimated, as they may turn out to have more
+    public boolean contains(int points, double distance) {
+        Route route = this.routes.get(points);
+        return route != null && route.distance <= distance;
+    }
+
+    // Adds the route, unless it's beaten by a route in the front, and removes the routes it beats
+    // Exact ties are broken like Solver.isBetter does
+    // Returns whether the route was added
+    public synchronized boolean add(Route route) {
+        // Only the route with the fewest points of those with at least as many can beat it,
+        //  as it's also the shortest of them
+        Map.Entry<Integer, Route> ceiling = this.routes.ceilingEntry(route.points);
+        if (ceiling != null) {
+            Route other = ceiling.getValue();
+            if (other.points > route.points ? other.distance <= route.distance : !Solver.isBetter(route, other)) {
+                return false;
+            }
+        }
+        // The routes it beats have at most as many points, and are the longest of those
+        Iterator<Route> beaten = this.routes.headMap(route.points, true).descendingMap().values().iterator();
+        while (beaten.hasNext() && beaten.next().distance >= route.distance) {
+            beaten.remove();
+        }
+        this.routes.put(route.points, route);
+        return true;
+    }
+
+    // The route with the most points, or null if there are none
+    public Route best() {
+        Map.Entry<Integer, Route> last = this.routes.lastEntry();
+        return last == null ? null : last.getValue();
+    }
+
+    // The route with the most points within distance, or null if there are none
+    public Route bestWithin(double distance) {
+        for (Route route : this.routes.descendingMap().values()) {
+            if (route.distance <= distance) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // Most points first
+    public List<Route> routes() {
+        return new ArrayList<>(this.routes.descendingMap().values());
+    }
+
+    public int size() {
+        return this.routes.size();
+    }
+}
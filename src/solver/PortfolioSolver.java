@@ -0,0 +1,72 @@
+package solver;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import scenario.Scenario;
+import util.Logging;
+
+// Runs several solvers at once on the same scenario, each on its own thread
+// They all store their finished routes in the same place, so a good route found quickly by
+//  one solver immediately lets the others skip routes that can't beat it
+// Stops once every solver has stopped, or as soon as one of them proves its route optimal
+// Solvers that can't handle the scenario (throwing an IllegalArgumentException) are skipped
+public class PortfolioSolver extends Solver {
+
+    private final List<Solver> solvers;
+
+    // Exact solvers and one that finds good routes quickly
+    // (not GreedySolver, which never stops on its own without a time limit)
+    public PortfolioSolver() {
+        this(new BruteForceSolver(), new LocalSearchSolver(), new MeetInTheMiddleSolver());
+    }
+
+    public PortfolioSolver(Solver... solvers) {
+        if (solvers.length == 0) {
+            throw new IllegalArgumentException("Portfolio needs at least one solver");
+        }
+        this.solvers = List.of(solvers);
+    }
+
+    public Result solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        initFinishedRoutes();
+        ExecutorService executor = Executors.newFixedThreadPool(this.solvers.size());
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        try {
+            for (Solver solver : this.solvers) {
+                solver.shareRoutesWith(this);
+                // As the public solve methods do, so a member cancelled in an earlier solve runs again
+                solver.control.reset();
+                completion.submit(() -> solver.solve(scenario, timeLimit));
+            }
+            for (int i = 0; i < this.solvers.size(); i++) {
+                Future<Result> done = completion.take();
+                Result result;
+                try {
+                    result = done.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IllegalArgumentException) {
+                        Logging.warn("WARNING: Portfolio skipped a solver: " + e.getCause().getMessage());
+                        continue;
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+                // Exact solvers that finish prove the best route optimal (see proveOptimal), which
+                //  also stops the other solvers
+                this.upperBound = Math.min(this.upperBound, result.upperBound);
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+            for (Solver solver : this.solvers) {
+                solver.shareRoutesWith(null);
+            }
+        }
+        return result();
+    }
+}
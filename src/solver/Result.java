@@ -7,21 +7,55 @@ import scenario.Route;
 public class Result {
     
     public List<Route> routes;
-    public Route bestRoute;
+    public Route bestRoute; // null if no route fits the distance limit
+
+    // no route in the scenario can have more points than this
+    public int upperBound;
 
     private double speed;
 
-    public Result(Collection<? extends Route> finishedRoutes, double speed) {
-        // Extract the 25 routes with the most points
+    // finishedRoutes should be a Pareto front (see ParetoFront), so that every route is the
+    //  best route for some distance limit
+    public Result(Collection<? extends Route> finishedRoutes, double speed, int upperBound) {
+        // Most points first
         List<Route> sortedRoutes = new ArrayList<>(finishedRoutes);
         sortedRoutes.sort(
             (a, b) -> Integer.compare(b.points, a.points)
         );
-        this.routes = sortedRoutes.subList(0, Math.min(25, sortedRoutes.size()));
-        this.bestRoute = sortedRoutes.get(0);
+        this.routes = sortedRoutes;
+        this.bestRoute = sortedRoutes.isEmpty() ? null : sortedRoutes.get(0);
+        this.upperBound = upperBound;
         this.speed = speed;
     }
 
+    // The route with the most points within a (shorter) time limit in minutes, or null if none
+    //  of the routes fit
+    // Only as good as the routes found, so solve with Solver.solveFront to get the best one
+    public Route bestWithin(double timeLimit) {
+        for (Route route : this.routes) {
+            if (route.distance <= timeLimit * this.speed) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // The fraction of the upper bound that the best route may be missing out on
+    // 0 means the best route is proven optimal
+    public double gap() {
+        if (this.bestRoute == null) {
+            return 1.0;
+        }
+        if (this.bestRoute.points >= this.upperBound) {
+            return 0.0;
+        }
+        return (double) (this.upperBound - this.bestRoute.points) / this.upperBound;
+    }
+
+    public boolean isOptimal() {
+        return gap() == 0.0;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -29,6 +63,8 @@ public class Result {
             sb.append(route.routeString(this.speed));
             sb.append("\n");
         }
+        sb.append("(at most ").append(this.upperBound).append(" points possible, gap ");
+        sb.append(String.format("%.1f", gap() * 100)).append("%)");
         return sb.toString();
     }
 }
@@ -0,0 +1,10 @@
+package solver;
+import scenario.Route;
+
+// Gets told about every new best route while a Solver is solving, see Solver.addListener
+@FunctionalInterface
+public interface RouteListener {
+
+    // elapsed is the time since the solve started, in milliseconds
+    void improved(Route route, long elapsed);
+}
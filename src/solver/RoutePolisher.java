@@ -0,0 +1,213 @@
+package solver;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+
+// Cleans up routes found by any solver, especially ones cut off by their time limit
+// Takes the zones a route captures in order, then shortens the order by reversing stretches
+//  (2-opt) and moving stretches of up to MAX_SEGMENT zones elsewhere (or-opt), and fills the
+//  distance that frees up by inserting the unvisited zones with the most points per extra
+//  distance, until none of that helps anymore
+// The zones are then connected along the fastest routes between them again
+// Only uses the distance table, so it takes milliseconds per route
+public class RoutePolisher {
+
+    // for tweaking
+    private final int MAX_SEGMENT = 3; // zones moved at once by or-opt
+
+    private final Scenario scenario;
+    private final double[][] distances;
+    private final Node[] zones;
+
+    public RoutePolisher(Scenario scenario) {
+        this.scenario = scenario;
+        Node[] nodes = scenario.nodeArray;
+        this.distances = new double[nodes.length][nodes.length];
+        for (Node from : nodes) {
+            Map<Node, Route> routes = scenario.fastestRoutes.get(from);
+            for (Node to : nodes) {
+                this.distances[from.id][to.id] = routes.get(to).distance;
+            }
+        }
+        this.zones = Arrays.stream(nodes)
+            .filter(node -> node.points > 0)
+            .toArray(Node[]::new);
+    }
+
+    // Polishes every route, keeping the originals that the polished routes don't beat, so the
+    //  routes are still the best ones found for every distance
+    public Result polish(Result result) {
+        ParetoFront front = new ParetoFront();
+        for (Route route : result.routes) {
+            front.add(route);
+            front.add(polish(route));
+        }
+        return new Result(front.routes(), this.scenario.speed, result.upperBound);
+    }
+
+    // The polished route, or the route itself if polishing doesn't make it better
+    public Route polish(Route route) {
+        List<Node> captured = route.getRouteNodes();
+        int[] order = new int[this.scenario.nodeArray.length + 2];
+        int size = 0;
+        boolean[] visited = new boolean[this.scenario.nodeArray.length];
+        for (int i = 0; i < captured.size(); i++) {
+            Node node = captured.get(i);
+            // An end captured on the way is captured at the end anyway
+            if (node == route.node && i != 0 && i != captured.size() - 1) {
+                continue;
+            }
+            order[size++] = node.id;
+            visited[node.id] = true;
+        }
+        double distance = 0.0;
+        for (int i = 1; i < size; i++) {
+            distance += this.distances[order[i - 1]][order[i]];
+        }
+        Sequence sequence = new Sequence(order, size, visited, distance);
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(sequence) || orOpt(sequence) || insert(sequence);
+        }
+        Route polished = new Route(captured.get(0));
+        Node[] nodes = this.scenario.nodeArray;
+        for (int i = 1; i < sequence.size; i++) {
+            Route leg = this.scenario.fastestRoutes.get(polished.node).get(nodes[sequence.order[i]]);
+            polished = Route.extend(polished, leg);
+        }
+        // Rounding in the distance table could push it just over the limit
+        if (polished.distance > this.scenario.distanceLimit) {
+            return route;
+        }
+        return Solver.isBetter(polished, route) ? polished : route;
+    }
+
+    // Reverse the first stretch of zones whose reversal shortens the sequence
+    private boolean twoOpt(Sequence s) {
+        double[][] d = this.distances;
+        int[] t = s.order;
+        // Positions 0 and size - 1 are start and end, which can't move
+        for (int i = 1; i < s.size - 2; i++) {
+            for (int j = i + 1; j < s.size - 1; j++) {
+                double change = d[t[i - 1]][t[j]] + d[t[i]][t[j + 1]]
+                    - d[t[i - 1]][t[i]] - d[t[j]][t[j + 1]];
+                if (change < -1e-9) {
+                    s.reverse(i, j);
+                    s.distance += change;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Move the first stretch of zones whose move elsewhere (either way around) shortens the sequence
+    private boolean orOpt(Sequence s) {
+        double[][] d = this.distances;
+        int[] t = s.order;
+        for (int length = 1; length <= MAX_SEGMENT; length++) {
+            for (int i = 1; i + length < s.size; i++) {
+                int first = t[i];
+                int last = t[i + length - 1];
+                double removal = d[t[i - 1]][t[i + length]] - d[t[i - 1]][first] - d[last][t[i + length]];
+                // Insert between positions j - 1 and j, outside the stretch
+                for (int j = 1; j < s.size; j++) {
+                    if (j >= i && j <= i + length) {
+                        continue;
+                    }
+                    double forward = d[t[j - 1]][first] + d[last][t[j]] - d[t[j - 1]][t[j]];
+                    double backward = d[t[j - 1]][last] + d[first][t[j]] - d[t[j - 1]][t[j]];
+                    double insertion = Math.min(forward, backward);
+                    if (removal + insertion < -1e-9) {
+                        s.move(i, length, j, backward < forward);
+                        s.distance += removal + insertion;
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Insert the unvisited zone with the most points per extra distance, if any fits
+    private boolean insert(Sequence s) {
+        double[][] d = this.distances;
+        int[] t = s.order;
+        double bestRatio = -1.0;
+        int bestPosition = -1;
+        int bestZone = -1;
+        double bestChange = 0.0;
+        for (Node zone : this.zones) {
+            if (s.visited[zone.id]) {
+                continue;
+            }
+            for (int i = 1; i < s.size; i++) {
+                double change = d[t[i - 1]][zone.id] + d[zone.id][t[i]] - d[t[i - 1]][t[i]];
+                if (s.distance + change > this.scenario.distanceLimit) {
+                    continue;
+                }
+                double ratio = zone.points / Math.max(change, 1e-9);
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    bestPosition = i;
+                    bestZone = zone.id;
+                    bestChange = change;
+                }
+            }
+        }
+        if (bestZone == -1) {
+            return false;
+        }
+        s.insert(bestPosition, bestZone);
+        s.distance += bestChange;
+        return true;
+    }
+
+    // The node ids a route goes through, from start to end
+    private static class Sequence {
+
+        public int[] order;
+        public int size;
+        public boolean[] visited; // by node id
+        public double distance;
+
+        public Sequence(int[] order, int size, boolean[] visited, double distance) {
+            this.order = order;
+            this.size = size;
+            this.visited = visited;
+            this.distance = distance;
+        }
+
+        public void insert(int position, int id) {
+            System.arraycopy(this.order, position, this.order, position + 1, this.size - position);
+            this.order[position] = id;
+            this.size++;
+            this.visited[id] = true;
+        }
+
+        // Reverse positions from and to, inclusive
+        public void reverse(int from, int to) {
+            for (int i = from, j = to; i < j; i++, j--) {
+                int swap = this.order[i];
+                this.order[i] = this.order[j];
+                this.order[j] = swap;
+            }
+        }
+
+        // Move the length ids at from to between positions to - 1 and to, reversed if asked
+        public void move(int from, int length, int to, boolean reversed) {
+            int[] stretch = Arrays.copyOfRange(this.order, from, from + length);
+            System.arraycopy(this.order, from + length, this.order, from, this.size - from - length);
+            if (to > from) {
+                to -= length;
+            }
+            System.arraycopy(this.order, to, this.order, to + length, this.size - length - to);
+            for (int k = 0; k < length; k++) {
+                this.order[to + k] = stretch[reversed ? length - 1 - k : k];
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package solver;
+
+// Tells searches when to stop: once their deadline has passed, or once cancelled from another thread
+// Deadlines are System.nanoTime() values, or NO_DEADLINE
+// Reading the clock at every step of a search adds up, so the clock is only read every
+//  CHECK_INTERVAL calls, and the last reading is used in between
+// Calls are counted per thread (roughly, threads can end up sharing a counter), so threads
+//  don't keep writing to the same memory
+public final class SearchControl {
+
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // for tweaking
+    // a search step takes at least tens of ns, so this reads the clock well within every ms
+    private static final int CHECK_INTERVAL = 256;
+    private static final int STRIPES = 64; // counters, picked by thread id
+    private static final int PADDING = 16; // ints per counter, so counters don't share a cache line
+
+    private final int[] countdowns = new int[STRIPES * PADDING];
+    private volatile long time;
+    private volatile boolean cancelled;
+
+    public SearchControl() {
+        reset();
+    }
+
+    // Clears cancellation and reads the clock, call at the start of every solve
+    public void reset() {
+        this.cancelled = false;
+        this.time = System.nanoTime();
+    }
+
+    // Safe to call from any thread
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    // The deadline timeLimit ms from now, or NO_DEADLINE if timeLimit is null
+    public static long deadline(Long timeLimit) {
+        if (timeLimit == null) {
+            return NO_DEADLINE;
+        }
+        return System.nanoTime() + timeLimit * 1_000_000;
+    }
+
+    // The last clock reading (System.nanoTime), at most CHECK_INTERVAL calls old
+    public long time() {
+        return this.time;
+    }
+
+    public boolean shouldStop(long deadline) {
+        if (this.cancelled || hasPassed(deadline, this.time)) {
+            return true;
+        }
+        int counter = (int) (Thread.currentThread().threadId() & (STRIPES - 1)) * PADDING;
+        if (--this.countdowns[counter] > 0) {
+            return false;
+        }
+        this.countdowns[counter] = CHECK_INTERVAL;
+        long now = System.nanoTime();
+        this.time = now;
+        return hasPassed(deadline, now);
+    }
+
+    // nanoTime values can only be compared by their difference, as they may overflow
+    private static boolean hasPassed(long deadline, long time) {
+        return deadline != NO_DEADLINE && time - deadline > 0;
+    }
+}
@@ -0,0 +1,162 @@
+package solver;
+import java.util.concurrent.atomic.LongAdder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Counts what a search does, to see where its time goes and which prune rules pay for themselves
+// Counters are striped (LongAdder), so threads counting at once don't slow each other down
+// Every Solver has one (see Solver.getMetrics), reset at the start of every solve
+// Solvers count what applies to them, counters they don't use stay 0
+public final class SearchMetrics {
+
+    // for tweaking
+    public static final int RULES = 9; // rule codes of BruteForceSolver.invalidRouteExtension, 1 to 8
+    public static final int MAX_DEPTH = 64; // deeper routes are counted as this deep
+    public static final int MAX_BRANCHING = 32; // more branches are counted as this many
+
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder crosses = new LongAdder();
+    private final LongAdder[] prunes = adders(RULES);
+    private final LongAdder[] depths = adders(MAX_DEPTH + 1);
+    private final LongAdder[] branchings = adders(MAX_BRANCHING + 1);
+
+    private volatile long startTime;
+    private volatile long endTime;
+    // ns after the start, -1 if none yet
+    private volatile long timeToFirst;
+    private volatile long timeToBest;
+
+    public SearchMetrics() {
+        reset();
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public void reset() {
+        this.expanded.reset();
+        this.finished.reset();
+        this.crosses.reset();
+        for (LongAdder[] histogram : new LongAdder[][] {this.prunes, this.depths, this.branchings}) {
+            for (LongAdder adder : histogram) {
+                adder.reset();
+            }
+        }
+        this.startTime = System.nanoTime();
+        this.endTime = 0;
+        this.timeToFirst = -1;
+        this.timeToBest = -1;
+    }
+
+    // A route of depth links has been extended by branches links (after pruning)
+    public void expanded(int depth, int branches) {
+        this.expanded.increment();
+        this.depths[Math.min(depth, MAX_DEPTH)].increment();
+        this.branchings[Math.min(branches, MAX_BRANCHING)].increment();
+    }
+
+    // A route reached the end
+    public void finished() {
+        this.finished.increment();
+        if (this.timeToFirst < 0) {
+            this.timeToFirst = System.nanoTime() - this.startTime;
+        }
+    }
+
+    // A route is the best so far
+    public void improved() {
+        this.timeToBest = System.nanoTime() - this.startTime;
+    }
+
+    public void pruned(int rule) {
+        this.prunes[rule].increment();
+    }
+
+    public void crossed() {
+        this.crosses.increment();
+    }
+
+    // Call when the solve ends, for the expansion rate
+    public void stopped() {
+        this.endTime = System.nanoTime();
+    }
+
+    public long expandedCount() {
+        return this.expanded.sum();
+    }
+
+    public long finishedCount() {
+        return this.finished.sum();
+    }
+
+    public long crossesCount() {
+        return this.crosses.sum();
+    }
+
+    public long prunes(int rule) {
+        return this.prunes[rule].sum();
+    }
+
+    public long[] depthHistogram() {
+        return sums(this.depths);
+    }
+
+    public long[] branchingHistogram() {
+        return sums(this.branchings);
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        // Drop the empty tail
+        int length = adders.length;
+        while (length > 0 && adders[length - 1].sum() == 0) {
+            length--;
+        }
+        long[] sums = new long[length];
+        for (int i = 0; i < length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    // ns since the start (until the end, once stopped)
+    public long elapsed() {
+        return (this.endTime != 0 ? this.endTime : System.nanoTime()) - this.startTime;
+    }
+
+    // Routes expanded per second
+    public double expansionRate() {
+        long elapsed = elapsed();
+        return elapsed == 0 ? 0 : expandedCount() * 1e9 / elapsed;
+    }
+
+    // Times in ms, null if there is no such time yet
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("elapsedMs", elapsed() / 1_000_000.0);
+        json.put("expanded", expandedCount());
+        json.put("expansionRate", expansionRate());
+        json.put("finished", finishedCount());
+        json.put("crosses", crossesCount());
+        JSONObject rules = new JSONObject();
+        for (int rule = 1; rule < RULES; rule++) {
+            rules.put(Integer.toString(rule), prunes(rule));
+        }
+        json.put("prunes", rules);
+        json.put("depths", new JSONArray(depthHistogram()));
+        json.put("branching", new JSONArray(branchingHistogram()));
+        json.put("timeToFirstMs", this.timeToFirst < 0 ? JSONObject.NULL : this.timeToFirst / 1_000_000.0);
+        json.put("timeToBestMs", this.timeToBest < 0 ? JSONObject.NULL : this.timeToBest / 1_000_000.0);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+}
@@ -1,8 +1,17 @@
 package solver;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import scenario.Link;
 import scenario.Node;
@@ -18,44 +27,291 @@ public abstract class Solver {
     protected abstract Result solve(Scenario scenario, Long timeLimit);
 
     // convenience end time calculation
+    // end times are System.nanoTime() values (see SearchControl), only to be compared by shouldStop
     protected long endTime(Long timeLimit) {
-        if (timeLimit == null) {
-            return Long.MAX_VALUE;
-        } else {
-            return System.currentTimeMillis() + timeLimit;
+        return SearchControl.deadline(timeLimit);
+    }
+
+    // deadline and cancellation checks, cheap enough to call at every step of a search
+    protected final SearchControl control = new SearchControl();
+
+    // searches should stop once the end time has passed, once a route has been proven optimal,
+    //  or once the solve has been cancelled (also when the solver this one shares with stops)
+    protected boolean shouldStop(long endTime) {
+        if (this.checkpointFile != null && this.control.time() - this.lastCheckpoint > CHECKPOINT_INTERVAL) {
+            synchronized (this) {
+                // Another thread may have just saved
+                if (this.control.time() - this.lastCheckpoint > CHECKPOINT_INTERVAL) {
+                    saveCheckpoint();
+                }
+            }
         }
+        return this.provenOptimal || this.control.shouldStop(endTime)
+            || (this.sharedWith != null && this.sharedWith.shouldStop(endTime));
     }
 
     public Result solve(Scenario scenario, int timeLimit) {
+        this.control.reset();
         return solve(scenario, (long) timeLimit * 1000);
     }
 
     public Result solve(Scenario scenario) {
+        this.control.reset();
         return solve(scenario, null);
     }
 
-    // storage of finished routes
+    // solving for the best route for every distance up to the distance limit at once
+    // the Result then holds the whole Pareto front, see Result.bestWithin
+    // exact solvers keep searching for routes that beat the front rather than the best route,
+    //  which takes longer than finding just the best route
+
+    public Result solveFront(Scenario scenario, int timeLimit) {
+        return solveFront(scenario, (long) timeLimit * 1000);
+    }
+
+    public Result solveFront(Scenario scenario) {
+        return solveFront(scenario, null);
+    }
+
+    private Result solveFront(Scenario scenario, Long timeLimit) {
+        this.control.reset();
+        this.wholeFront = true;
+        try {
+            return solve(scenario, timeLimit);
+        } finally {
+            this.wholeFront = false;
+        }
+    }
+
+    private boolean wholeFront;
+
+    protected boolean findsWholeFront() {
+        return this.wholeFront || (this.sharedWith != null && this.sharedWith.findsWholeFront());
+    }
+
+    // Whether a route with at most points and at least distance could still be worth finishing:
+    //  having as many points as the best route, or when finding the whole front, not being
+    //  beaten by any route in it
+    protected boolean couldImprove(double points, double distance) {
+        if (findsWholeFront()) {
+            return !this.finishedRoutes.isDominated(points, distance);
+        }
+        Route best = this.bestRoute.get();
+        return best == null || points >= best.points;
+    }
+
+    // asynchronous solving, on a new thread
+    // cancelling the future stops the search, and the future then completes with a
+    //  CancellationException, use a listener to keep the routes found until then
+
+    public CompletableFuture<Result> solveAsync(Scenario scenario, int timeLimit) {
+        return solveAsync(scenario, (long) timeLimit * 1000);
+    }
+
+    public CompletableFuture<Result> solveAsync(Scenario scenario) {
+        return solveAsync(scenario, null);
+    }
+
+    private CompletableFuture<Result> solveAsync(Scenario scenario, Long timeLimit) {
+        this.control.reset();
+        CompletableFuture<Result> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                Solver.this.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(solve(scenario, timeLimit));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, getClass().getSimpleName());
+        thread.start();
+        return future;
+    }
+
+    // stops the current solve as soon as possible, which then returns the routes found so far
+    // safe to call from any thread
+    public void cancel() {
+        this.control.cancel();
+    }
+
+    // listeners are told about every new best route as soon as it's found, on the thread that
+    //  found it, so they should return quickly
+    // they are told in order of improvement, even when routes are found by multiple threads
+
+    private final List<RouteListener> listeners = new CopyOnWriteArrayList<>();
+    private long startTime;
+
+    public void addListener(RouteListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(RouteListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    private void notifyListeners(Route route) {
+        synchronized (this.listeners) {
+            // An even better route may have been found (and told about) in the meantime
+            if (this.bestRoute.get() != route) {
+                return;
+            }
+            long elapsed = (System.nanoTime() - this.startTime) / 1_000_000;
+            for (RouteListener listener : this.listeners) {
+                listener.improved(route, elapsed);
+            }
+        }
+        if (this.sharedWith != null) {
+            this.sharedWith.notifyListeners(route);
+        }
+    }
+
+    // storage of finished routes, only those that no other route beats
+    // safe to finish routes from multiple threads at once
+
+    public ParetoFront finishedRoutes;
+    public AtomicReference<Route> bestRoute;
+
+    // set when no route can beat the best route, see proveOptimal
+    protected volatile boolean provenOptimal;
+
+    // call when a search has ruled out every route that beats the best route: with more points,
+    //  or as many points in a shorter distance (reaching the upper bound only rules out the first)
+    // lowers the upper bound to the best route's points and stops the solvers sharing the storage,
+    //  which can't find anything better either
+    protected void proveOptimal() {
+        Route best = this.bestRoute.get();
+        if (best != null) {
+            this.upperBound = Math.min(this.upperBound, best.points);
+        }
+        this.provenOptimal = true;
+        if (this.sharedWith != null) {
+            this.sharedWith.proveOptimal();
+        }
+    }
+
+    // what the last (or current) solve did, see SearchMetrics
+    protected final SearchMetrics metrics = new SearchMetrics();
+
+    public SearchMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    // another solver whose storage is used instead of this solver's own, see PortfolioSolver
+    private Solver sharedWith;
+
+    void shareRoutesWith(Solver other) {
+        this.sharedWith = other;
+    }
+
+    // resets the storage, call at the start of every solve
+    // when sharing, the storage is the other solver's, which is reset by that solver instead
+    protected void initFinishedRoutes() {
+        if (this.sharedWith != null) {
+            this.finishedRoutes = this.sharedWith.finishedRoutes;
+            this.bestRoute = this.sharedWith.bestRoute;
+        } else {
+            this.finishedRoutes = new ParetoFront();
+            this.bestRoute = new AtomicReference<>();
+        }
+        this.provenOptimal = false;
+        this.upperBound = Integer.MAX_VALUE;
+        this.startTime = System.nanoTime();
+        this.metrics.reset();
+        this.lastCheckpoint = this.control.time();
+        this.resumed = null;
+        if (this.checkpointFile != null) {
+            this.resumed = Checkpoint.read(this.checkpointFile, this.scenario);
+            if (this.resumed != null) {
+                for (Route route : this.resumed.routes) {
+                    this.finishedRoutes.add(route);
+                }
+                this.bestRoute.set(this.finishedRoutes.best());
+            }
+        }
+    }
+
+    // convenience result creation, also saves a last checkpoint
+    protected Result result() {
+        this.metrics.stopped();
+        saveCheckpoint();
+        return new Result(this.finishedRoutes.routes(), this.scenario.speed, this.upperBound);
+    }
+
+    // checkpointing, see Checkpoint
+    // when set, the solve is saved to the file every CHECKPOINT_INTERVAL and when it ends, and
+    //  solves start from the file if it exists: with its routes, and where the search was if the
+    //  solver can resume from there (otherwise the search starts over, but with a good route
+    //  to beat already)
+
+    private static final long CHECKPOINT_INTERVAL = 60_000_000_000L; // ns
+
+    private Path checkpointFile;
+    private volatile long lastCheckpoint;
+
+    // the checkpoint the current solve started from, null if none
+    protected Checkpoint resumed;
+
+    public void setCheckpoint(Path file) {
+        this.checkpointFile = file;
+    }
+
+    // where the search is, for solvers that can resume from there, null otherwise
+    protected int[] checkpointPosition() {
+        return null;
+    }
+
+    // whether the search is complete, so resuming it would find nothing new
+    protected boolean checkpointFinished() {
+        return false;
+    }
 
-    public Map<Integer, Route> finishedRoutes;
-    public Route bestRoute;
+    protected synchronized void saveCheckpoint() {
+        if (this.checkpointFile == null) {
+            return;
+        }
+        Checkpoint checkpoint = new Checkpoint(
+            this.finishedRoutes.routes(), this.upperBound, checkpointPosition(), checkpointFinished()
+        );
+        checkpoint.write(this.checkpointFile, this.scenario);
+        this.lastCheckpoint = this.control.time();
+    }
 
     protected void finishRoute(Route solution) {
-        // If there is already a route with this many points, keep the shorter one
-        if (finishedRoutes.containsKey(solution.points)) {
-            Route existing = finishedRoutes.get(solution.points);
-            if (solution.distance >= existing.distance) {
+        this.metrics.finished();
+        // Only keep it if no other route beats it
+        if (!this.finishedRoutes.add(solution)) {
+            return;
+        }
+        // Print and tell listeners if best so far
+        // Retry until either the swap succeeds or another thread has found something better
+        Route best = this.bestRoute.get();
+        while (best == null || isBetter(solution, best)) {
+            if (this.bestRoute.compareAndSet(best, solution)) {
+                this.metrics.improved();
+                System.out.println(solution.routeString(scenario.speed));
+                notifyListeners(solution);
                 return;
             }
+            best = this.bestRoute.get();
+        }
+    }
+
+    // More points is better, then shorter distance
+    // Ties are broken by the route string so that the order routes are found in (which varies
+    //  between orderings and parallel runs) doesn't matter
+    // Distances that only differ by rounding are ties too, such as a round trip and its reverse
+    protected static boolean isBetter(Route route, Route other) {
+        if (route.points != other.points) {
+            return route.points > other.points;
         }
-        finishedRoutes.put(solution.points, solution);
-        // Print if best so far
-        if (this.bestRoute == null ||
-            solution.points > this.bestRoute.points ||
-            (solution.points == this.bestRoute.points && solution.distance < this.bestRoute.distance)
-        ) {
-            this.bestRoute = solution;
-            System.out.println(solution.routeString(scenario.speed));
+        if (Math.abs(route.distance - other.distance) > 1e-9) {
+            return route.distance < other.distance;
         }
+        return route.toString().compareTo(other.toString()) < 0;
     }
 
     // handling of crosses (though utilizing this is optional)
@@ -105,9 +361,202 @@ public abstract class Solver {
         for (Link routeLink : route.getLinks()) {
             Set<Link> crossesWith = this.crosses.get(link);
             if (crossesWith != null && crossesWith.contains(routeLink)) {
+                this.metrics.crossed();
                 return true;
             }
         }
         return false;
     }
+
+    // shortest distances between all nodes, by node id (utilizing this is optional)
+
+    protected double[][] distances;
+
+    protected void findDistances() {
+        Node[] nodes = this.scenario.nodeArray;
+        this.distances = new double[nodes.length][nodes.length];
+        for (Node from : nodes) {
+            Map<Node, Route> routes = this.scenario.fastestRoutes.get(from);
+            for (Node to : nodes) {
+                this.distances[from.id][to.id] = routes.get(to).distance;
+            }
+        }
+    }
+
+    // Connects the nodes along the fastest routes between them, starting at the first node
+    protected Route fastestRouteThrough(List<Node> nodes) {
+        Route route = new Route(nodes.get(0));
+        for (Node node : nodes) {
+            if (node != route.node) {
+                route = Route.extend(route, this.scenario.fastestRoutes.get(route.node).get(node));
+            }
+        }
+        return route;
+    }
+
+    // The zones that fit within the distance limit on the way from start to end, by id
+    // Excludes start and end, which are always part of a route
+    protected Node[] reachableZones() {
+        Node start = this.scenario.start;
+        Node end = this.scenario.end;
+        return Arrays.stream(this.scenario.nodeArray)
+            .filter(node -> node != start && node != end && node.points > 0)
+            .filter(node -> this.distances[start.id][node.id] + this.distances[node.id][end.id]
+                <= this.scenario.distanceLimit)
+            .toArray(Node[]::new);
+    }
+
+    // handling of points bounds (though utilizing this is optional, requires distances)
+
+    // the most points any route in the scenario can have, if findUpperBound has been called
+    public int upperBound;
+
+    // Finds the upper bound by relaxing the problem into a knapsack problem and solving its
+    //  linear programming relaxation (greedily by points per distance, allowing fractions)
+    // Candidates are the nodes inside the ellipse between start and end
+    // Every route is a chain of legs between captures, and each leg is at least as long as
+    //  the distance between its two captures. Splitting each leg in half between its two
+    //  captures, every capture in the middle of the route is charged at least the average
+    //  distance to its two closest candidates, and the start and end half the distance
+    //  to their closest candidate
+    // If start and end are the same, a one-capture route has the same candidate on both
+    //  sides, so every capture is charged the distance to its closest candidate instead
+    protected void findUpperBound() {
+        Node start = this.scenario.start;
+        Node end = this.scenario.end;
+        double limit = this.scenario.distanceLimit;
+        boolean loop = start == end;
+        List<Node> candidates = new ArrayList<>();
+        for (Node node : this.scenario.nodeArray) {
+            if (node == start || node == end || node.points == 0) {
+                continue;
+            }
+            if (this.distances[start.id][node.id] + this.distances[node.id][end.id] <= limit) {
+                candidates.add(node);
+            }
+        }
+        List<Node> neighbors = new ArrayList<>(candidates);
+        neighbors.add(start);
+        if (!loop) {
+            neighbors.add(end);
+        }
+        double capacity = limit;
+        if (!loop) {
+            capacity -= closestDistances(start, neighbors)[0] / 2;
+            capacity -= closestDistances(end, neighbors)[0] / 2;
+        }
+        Map<Node, Double> costs = new HashMap<>();
+        for (Node candidate : candidates) {
+            double[] closest = closestDistances(candidate, neighbors);
+            costs.put(candidate, loop ? closest[0] : (closest[0] + closest[1]) / 2);
+        }
+        candidates.sort(Comparator.comparingDouble(node -> -node.points / costs.get(node)));
+        double bound = start.points + (loop ? 0 : end.points);
+        for (Node candidate : candidates) {
+            if (capacity <= 0.0) {
+                break;
+            }
+            double cost = costs.get(candidate);
+            if (cost <= capacity) {
+                bound += candidate.points;
+                capacity -= cost;
+            } else {
+                bound += candidate.points * capacity / cost;
+                capacity = 0.0;
+            }
+        }
+        this.upperBound = (int) Math.floor(bound);
+    }
+
+    // The distances to the closest and second closest other node among nodes
+    // Infinite if there is no such node
+    private double[] closestDistances(Node node, List<Node> nodes) {
+        double[] closest = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        for (Node other : nodes) {
+            if (other == node) {
+                continue;
+            }
+            double distance = Math.min(this.distances[node.id][other.id], this.distances[other.id][node.id]);
+            if (distance < closest[0]) {
+                closest[1] = closest[0];
+                closest[0] = distance;
+            } else if (distance < closest[1]) {
+                closest[1] = distance;
+            }
+        }
+        return closest;
+    }
+
+    // the least distance any route has to travel to capture each node, by node id
+    //  (the distance to it from its closest other node)
+    protected double[] captureDistances;
+    // node ids, by points per capture distance in descending order
+    protected int[] boundOrder;
+
+    protected void findBounds() {
+        Node[] nodes = this.scenario.nodeArray;
+        this.captureDistances = new double[nodes.length];
+        for (Node node : nodes) {
+            double closest = Double.POSITIVE_INFINITY;
+            for (Node other : nodes) {
+                if (other != node) {
+                    closest = Math.min(closest, this.distances[other.id][node.id]);
+                }
+            }
+            this.captureDistances[node.id] = closest;
+        }
+        this.boundOrder = Arrays.stream(nodes)
+            .sorted(Comparator.comparingDouble(node -> -node.points / this.captureDistances[node.id]))
+            .mapToInt(node -> node.id)
+            .toArray();
+    }
+
+    // An optimistic estimate of the most points a route can have when it reaches the end
+    // The route is at node, has traveled distance, has points, and has visited the nodes in visited
+    //  (node itself counts as visited, whether it's in visited or not)
+    // Every unvisited node that could be visited on the way to the end without exceeding the
+    //  distance limit (that is, inside the ellipse between node and end) is a candidate
+    // Every captured node costs at least its capture distance, so the route can at most get
+    //  the points of the candidates that fit in a knapsack the size of the remaining distance
+    //  This knapsack is solved greedily by points per distance, taking a fraction of the last
+    //  candidate that doesn't fit, which can only overestimate
+    // Stops counting once the estimate goes above cutoff
+    protected double upperBound(Node node, double distance, int points, BitSet visited, double cutoff) {
+        return upperBound(node, distance, points, visited, this.scenario.end, this.scenario.distanceLimit, cutoff);
+    }
+
+    // As above, but for routes that end somewhere else or have another distance limit
+    protected double upperBound(
+        Node node, double distance, int points, BitSet visited, Node end, double limit, double cutoff
+    ) {
+        double remaining = limit - distance;
+        double bound = points;
+        // The end has to be captured last if it hasn't already been
+        if (node != end && !visited.get(end.id)) {
+            bound += end.points;
+            remaining -= this.captureDistances[end.id];
+        }
+        double[] fromNode = this.distances[node.id];
+        for (int id : this.boundOrder) {
+            if (bound > cutoff || remaining <= 0.0) {
+                break;
+            }
+            Node candidate = this.scenario.nodeArray[id];
+            if (candidate == node || candidate == end || candidate.points == 0 || visited.get(id)) {
+                continue;
+            }
+            if (fromNode[id] + this.distances[id][end.id] > limit - distance) {
+                continue;
+            }
+            double cost = this.captureDistances[id];
+            if (cost <= remaining) {
+                bound += candidate.points;
+                remaining -= cost;
+            } else {
+                bound += candidate.points * remaining / cost;
+                remaining = 0.0;
+            }
+        }
+        return bound;
+    }
 }
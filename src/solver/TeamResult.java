@@ -0,0 +1,48 @@
+package solver;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import scenario.Node;
+import scenario.Route;
+
+// The routes of a team of walkers, see TeamSolver
+public class TeamResult {
+
+    // one per walker, in the order the walkers were given in
+    public List<Route> routes;
+
+    // of the whole team, counting every zone once (routes may pass through each other's zones)
+    public int points;
+    public int realPoints;
+
+    private double speed;
+
+    public TeamResult(List<Route> routes, double speed) {
+        this.routes = routes;
+        this.speed = speed;
+        Set<Node> captured = new HashSet<>();
+        for (Route route : routes) {
+            captured.addAll(route.getCapturedNodes());
+        }
+        for (Node node : captured) {
+            this.points += node.points;
+            this.realPoints += node.realPoints;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < this.routes.size(); i++) {
+            sb.append("Walker ").append(i + 1).append(": ");
+            sb.append(this.routes.get(i).routeString(this.speed));
+            sb.append("\n");
+        }
+        sb.append("(").append(this.realPoints).append(" points in total");
+        if (this.points != this.realPoints) {
+            sb.append(" (valued at ").append(this.points).append(")");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package solver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import scenario.Node;
+import scenario.Route;
+import scenario.Scenario;
+import solver.TourSearch.Tour;
+
+// Plans routes for a team of walkers at once, each with their own start, end and time limit,
+//  for the most points in total, counting every zone only once
+// All walkers share one Scenario (its nodes and fastest routes), which has to cover all of them,
+//  e.g. by building it for the walker with the most time and starting/ending near the others
+// Every walker improves their own sequence of zones on their own thread with the changes of
+//  LocalSearchSolver (see TourSearch), but can only add zones no other walker has claimed, so no
+//  zone is in two routes
+// Zones a walker drops while shaking up their route are free for the others to claim
+// Walkers work in rounds, after each of which the team is compared to the best team so far
+// Travels between zones along the fastest routes, so like LocalSearchSolver it ignores crosses
+public class TeamSolver {
+
+    // One member of the team
+    public static class Walker {
+
+        public final String start;
+        public final String end;
+        public final double timeLimit; // minutes
+
+        public Walker(String start, String end, double timeLimit) {
+            if (timeLimit <= 0) {
+                throw new IllegalArgumentException("Time limit must be positive");
+            }
+            this.start = start;
+            this.end = end;
+            this.timeLimit = timeLimit;
+        }
+    }
+
+    // for tweaking
+    private final long SEED = 0;
+    private final int ROUND_LENGTH = 100; // perturbations per walker per round
+    private final int STALL_LIMIT = 50; // rounds without a better team
+
+    private static final int UNCLAIMED = -1;
+
+    private final List<Walker> walkers;
+    private final SearchControl control = new SearchControl();
+
+    private Scenario scenario;
+    private double[][] distances;
+    // node ids -> index of the walker whose route has the node, or UNCLAIMED
+    private AtomicIntegerArray owners;
+
+    public TeamSolver(Walker... walkers) {
+        if (walkers.length == 0) {
+            throw new IllegalArgumentException("Team needs at least one walker");
+        }
+        this.walkers = List.of(walkers);
+    }
+
+    public TeamResult solve(Scenario scenario, int timeLimit) {
+        this.control.reset();
+        return solve(scenario, (long) timeLimit * 1000);
+    }
+
+    public TeamResult solve(Scenario scenario) {
+        this.control.reset();
+        return solve(scenario, null);
+    }
+
+    // Safe to call from any thread, stops the solve shortly after
+    public void cancel() {
+        this.control.cancel();
+    }
+
+    private TeamResult solve(Scenario scenario, Long timeLimit) {
+        this.scenario = scenario;
+        long end = SearchControl.deadline(timeLimit);
+        Node[] nodes = scenario.nodeArray;
+        this.distances = new double[nodes.length][nodes.length];
+        for (Node from : nodes) {
+            Map<Node, Route> routes = scenario.fastestRoutes.get(from);
+            for (Node to : nodes) {
+                this.distances[from.id][to.id] = routes.get(to).distance;
+            }
+        }
+        this.owners = new AtomicIntegerArray(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            this.owners.set(i, UNCLAIMED);
+        }
+        // Starts and ends go to the first walker to have them
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < this.walkers.size(); i++) {
+            members.add(member(i, this.walkers.get(i), end));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(members.size());
+        Tour[] best = snapshot(members);
+        try {
+            int stalled = 0;
+            while (!this.control.shouldStop(end) && stalled < STALL_LIMIT) {
+                for (Future<Void> round : executor.invokeAll(members)) {
+                    round.get();
+                }
+                Tour[] team = snapshot(members);
+                if (isBetter(team, best)) {
+                    best = team;
+                    stalled = 0;
+                } else {
+                    stalled++;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (Tour tour : best) {
+            Route route = new Route(nodes[tour.nodes[0]]);
+            for (int i = 1; i < tour.size; i++) {
+                route = Route.extend(route, scenario.fastestRoutes.get(route.node).get(nodes[tour.nodes[i]]));
+            }
+            routes.add(route);
+        }
+        return new TeamResult(routes, scenario.speed);
+    }
+
+    private Member member(int index, Walker walker, long endTime) {
+        Node start = this.scenario.getNode(walker.start);
+        Node end = this.scenario.getNode(walker.end);
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Walker start or end not in scenario: " + walker.start + ", " + walker.end);
+        }
+        double limit = walker.timeLimit * this.scenario.speed;
+        if (this.distances[start.id][end.id] > limit) {
+            throw new IllegalArgumentException("Walker can't reach their end in time: " + walker.end);
+        }
+        Node[] zones = Arrays.stream(this.scenario.nodeArray)
+            .filter(node -> node != start && node != end && node.points > 0)
+            .filter(node -> this.distances[start.id][node.id] + this.distances[node.id][end.id] <= limit)
+            .toArray(Node[]::new);
+        return new Member(index, start, end, limit, zones, endTime);
+    }
+
+    // Copies of every walker's tour, only to be taken between rounds
+    private static Tour[] snapshot(List<Member> members) {
+        Tour[] team = new Tour[members.size()];
+        for (int i = 0; i < team.length; i++) {
+            team[i] = members.get(i).tour.copy();
+        }
+        return team;
+    }
+
+    // More points in total is better, then less distance in total
+    private static boolean isBetter(Tour[] team, Tour[] other) {
+        int points = 0;
+        double distance = 0.0;
+        for (int i = 0; i < team.length; i++) {
+            points += team[i].points - other[i].points;
+            distance += team[i].distance - other[i].distance;
+        }
+        return points > 0 || (points == 0 && distance < -1e-9);
+    }
+
+    // A walker's search, every call runs one round
+    private class Member extends TourSearch implements Callable<Void> {
+
+        private final int index;
+        private final long endTime;
+        private Tour tour;
+
+        // zones are those within the walker's reach
+        public Member(int index, Node start, Node end, double limit, Node[] zones, long endTime) {
+            super(TeamSolver.this.scenario, TeamSolver.this.distances, zones, limit, new Random(SEED + index));
+            this.index = index;
+            this.endTime = endTime;
+            owners.compareAndSet(start.id, UNCLAIMED, index);
+            owners.compareAndSet(end.id, UNCLAIMED, index);
+            this.tour = direct(start, end, owners.get(start.id) == index, owners.get(end.id) == index);
+        }
+
+        // Perturb and improve, keeping the result unless it's worse
+        @Override
+        public Void call() {
+            for (int i = 0; i < ROUND_LENGTH && !control.shouldStop(this.endTime); i++) {
+                Tour next = this.tour.copy();
+                // Zones that were just removed can't be put back right away, but others can claim them
+                boolean[] tabu = perturb(next);
+                improve(next, tabu);
+                improve(next, new boolean[tabu.length]);
+                if (next.isBetterThan(this.tour) || next.points == this.tour.points) {
+                    this.tour = next;
+                } else {
+                    revert(next, this.tour);
+                }
+            }
+            return null;
+        }
+
+        // Goes back from next to tour: releases the zones only next has, and claims the zones
+        //  only tour has again, dropping those another walker has claimed in the meantime
+        private void revert(Tour next, Tour tour) {
+            for (int i = 1; i < next.size - 1; i++) {
+                int id = next.nodes[i];
+                if (!tour.visited[id]) {
+                    owners.set(id, UNCLAIMED);
+                }
+            }
+            double[][] d = distances;
+            int[] t = tour.nodes;
+            for (int i = tour.size - 2; i >= 1; i--) {
+                int id = t[i];
+                if (!next.visited[id] && !owners.compareAndSet(id, UNCLAIMED, this.index)) {
+                    tour.remove(i, d[t[i - 1]][t[i + 1]] - d[t[i - 1]][id] - d[id][t[i + 1]]);
+                }
+            }
+        }
+
+        // Only zones no other walker has claimed
+        @Override
+        protected boolean canAdd(int id, boolean[] tabu) {
+            return !tabu[id] && owners.get(id) == UNCLAIMED;
+        }
+
+        // Another walker may have claimed it since it was looked at
+        @Override
+        protected boolean claim(int id) {
+            return owners.compareAndSet(id, UNCLAIMED, this.index);
+        }
+
+        // Free for the others to claim
+        @Override
+        protected void release(int id) {
+            owners.set(id, UNCLAIMED);
+        }
+    }
+}
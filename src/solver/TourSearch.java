@@ -0,0 +1,264 @@
+package solver;
+import java.util.Random;
+import scenario.Node;
+import scenario.Scenario;
+
+// The local search of LocalSearchSolver and TeamSolver: improves a sequence of zones (a Tour)
+//  with small changes until no change helps, and shakes it up by removing random zones
+// The changes are inserting, swapping, moving and reordering zones, all of which only need
+//  a few lookups in the distance table to evaluate
+// Zones are added through canAdd and claim and removed through release, which TeamSolver
+//  overrides so no zone ends up in two walkers' tours
+class TourSearch {
+
+    // for tweaking
+    private final double MAX_PERTURBATION = 0.3; // fraction of zones removed
+
+    protected final Scenario scenario;
+    protected final double[][] distances;
+    protected final Node[] zones; // that may be added
+    protected final double limit;
+    protected final Random random;
+
+    public TourSearch(Scenario scenario, double[][] distances, Node[] zones, double limit, Random random) {
+        this.scenario = scenario;
+        this.distances = distances;
+        this.zones = zones;
+        this.limit = limit;
+        this.random = random;
+    }
+
+    // Whether the zone (not in the tour) may be added, tabu zones never can
+    protected boolean canAdd(int id, boolean[] tabu) {
+        return !tabu[id];
+    }
+
+    // Called right before a zone is added, which only happens if this returns true
+    protected boolean claim(int id) {
+        return true;
+    }
+
+    // Called when a zone is removed
+    protected void release(int id) {
+    }
+
+    // Directly from start to end, start and end only count for points if asked
+    public Tour direct(Node start, Node end, boolean countStart, boolean countEnd) {
+        return new Tour(this.scenario.nodeArray, start, end, this.distances[start.id][end.id],
+            (countStart ? start.points : 0) + (countEnd && start != end ? end.points : 0));
+    }
+
+    // Apply improving changes until there are none left, without adding tabu zones
+    // Reordering shortens the tour, which can make room for more zones
+    public void improve(Tour tour, boolean[] tabu) {
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(tour) || relocate(tour) || swap(tour, tabu) || insert(tour, tabu);
+        }
+    }
+
+    // Reverse the first stretch of zones whose reversal shortens the tour
+    private boolean twoOpt(Tour tour) {
+        double[][] d = this.distances;
+        int[] t = tour.nodes;
+        // Positions 0 and size - 1 are start and end, which can't move
+        for (int i = 1; i < tour.size - 2; i++) {
+            for (int j = i + 1; j < tour.size - 1; j++) {
+                double change = d[t[i - 1]][t[j]] + d[t[i]][t[j + 1]]
+                    - d[t[i - 1]][t[i]] - d[t[j]][t[j + 1]];
+                if (change < -1e-9) {
+                    tour.reverse(i, j, change);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Move the first zone whose move to another position shortens the tour
+    private boolean relocate(Tour tour) {
+        double[][] d = this.distances;
+        int[] t = tour.nodes;
+        for (int i = 1; i < tour.size - 1; i++) {
+            int moved = t[i];
+            double removal = d[t[i - 1]][t[i + 1]] - d[t[i - 1]][moved] - d[moved][t[i + 1]];
+            for (int j = 1; j < tour.size; j++) {
+                if (j == i || j == i + 1) {
+                    continue;
+                }
+                double insertion = d[t[j - 1]][moved] + d[moved][t[j]] - d[t[j - 1]][t[j]];
+                if (removal + insertion < -1e-9) {
+                    tour.remove(i, removal);
+                    tour.insert(j < i ? j : j - 1, moved, insertion);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Replace a zone in the tour with one that can be added, if it gives more points, or as many
+    //  points in a shorter distance
+    private boolean swap(Tour tour, boolean[] tabu) {
+        double[][] d = this.distances;
+        int[] t = tour.nodes;
+        for (int i = 1; i < tour.size - 1; i++) {
+            int previous = t[i - 1];
+            int removed = t[i];
+            int next = t[i + 1];
+            double removal = d[previous][removed] + d[removed][next];
+            for (Node zone : this.zones) {
+                int added = zone.id;
+                if (tour.visited[added] || !canAdd(added, tabu)) {
+                    continue;
+                }
+                double change = d[previous][added] + d[added][next] - removal;
+                if (tour.distance + change > this.limit) {
+                    continue;
+                }
+                int pointChange = zone.points - this.scenario.nodeArray[removed].points;
+                if (pointChange > 0 || (pointChange == 0 && change < -1e-9)) {
+                    if (!claim(added)) {
+                        continue;
+                    }
+                    release(removed);
+                    tour.remove(i, d[previous][next] - removal);
+                    tour.insert(i, added, d[previous][added] + d[added][next] - d[previous][next]);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Insert the zone with the most points per extra distance, if any fits
+    private boolean insert(Tour tour, boolean[] tabu) {
+        double[][] d = this.distances;
+        int[] t = tour.nodes;
+        double bestRatio = -1.0;
+        int bestPosition = -1;
+        int bestZone = -1;
+        double bestChange = 0.0;
+        for (Node zone : this.zones) {
+            int added = zone.id;
+            if (tour.visited[added] || !canAdd(added, tabu)) {
+                continue;
+            }
+            for (int i = 1; i < tour.size; i++) {
+                double change = d[t[i - 1]][added] + d[added][t[i]] - d[t[i - 1]][t[i]];
+                if (tour.distance + change > this.limit) {
+                    continue;
+                }
+                double ratio = zone.points / Math.max(change, 1e-9);
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    bestPosition = i;
+                    bestZone = added;
+                    bestChange = change;
+                }
+            }
+        }
+        if (bestZone == -1) {
+            return false;
+        }
+        // If it can't be claimed after all, canAdd rules it out next time
+        if (claim(bestZone)) {
+            tour.insert(bestPosition, bestZone, bestChange);
+        }
+        return true;
+    }
+
+    // Remove a random stretch of zones, or as many zones from random places
+    // Returns the removed zones, by node id
+    public boolean[] perturb(Tour tour) {
+        boolean[] removed = new boolean[this.scenario.nodeArray.length];
+        int zoneCount = tour.size - 2;
+        if (zoneCount == 0) {
+            return removed;
+        }
+        int maxLength = Math.max(1, (int) (zoneCount * MAX_PERTURBATION));
+        int length = 1 + this.random.nextInt(maxLength);
+        boolean stretch = this.random.nextBoolean();
+        int from = 1 + this.random.nextInt(zoneCount - length + 1);
+        double[][] d = this.distances;
+        for (int k = 0; k < length; k++) {
+            int[] t = tour.nodes;
+            int i = stretch ? from : 1 + this.random.nextInt(tour.size - 2);
+            removed[t[i]] = true;
+            release(t[i]);
+            double change = d[t[i - 1]][t[i + 1]] - d[t[i - 1]][t[i]] - d[t[i]][t[i + 1]];
+            tour.remove(i, change);
+        }
+        return removed;
+    }
+
+    // A sequence of node ids from a start to an end, with running totals
+    static class Tour {
+
+        private final Node[] nodeArray;
+        public int[] nodes;
+        public int size;
+        public boolean[] visited; // by node id
+        public double distance;
+        public int points;
+
+        private Tour(Node[] nodeArray, Node start, Node end, double distance, int points) {
+            this.nodeArray = nodeArray;
+            this.nodes = new int[nodeArray.length + 2];
+            this.nodes[0] = start.id;
+            this.nodes[1] = end.id;
+            this.size = 2;
+            this.visited = new boolean[nodeArray.length];
+            this.visited[start.id] = true;
+            this.visited[end.id] = true;
+            this.distance = distance;
+            this.points = points;
+        }
+
+        private Tour(Tour other) {
+            this.nodeArray = other.nodeArray;
+            this.nodes = other.nodes.clone();
+            this.size = other.size;
+            this.visited = other.visited.clone();
+            this.distance = other.distance;
+            this.points = other.points;
+        }
+
+        public Tour copy() {
+            return new Tour(this);
+        }
+
+        public boolean isBetterThan(Tour other) {
+            return this.points > other.points
+                || (this.points == other.points && this.distance < other.distance - 1e-9);
+        }
+
+        public void insert(int position, int id, double distanceChange) {
+            System.arraycopy(this.nodes, position, this.nodes, position + 1, this.size - position);
+            this.nodes[position] = id;
+            this.size++;
+            this.visited[id] = true;
+            this.distance += distanceChange;
+            this.points += this.nodeArray[id].points;
+        }
+
+        public void remove(int position, double distanceChange) {
+            int id = this.nodes[position];
+            System.arraycopy(this.nodes, position + 1, this.nodes, position, this.size - position - 1);
+            this.size--;
+            this.visited[id] = false;
+            this.distance += distanceChange;
+            this.points -= this.nodeArray[id].points;
+        }
+
+        // Reverse positions from and to, inclusive
+        public void reverse(int from, int to, double distanceChange) {
+            for (int i = from, j = to; i < j; i++, j--) {
+                int swap = this.nodes[i];
+                this.nodes[i] = this.nodes[j];
+                this.nodes[j] = swap;
+            }
+            this.distance += distanceChange;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package solver;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Remembers the shortest distance a search has reached each state in, by 64-bit state hash
+// A fixed amount of slots, each holding one state, so it never grows past its memory cap
+// A new state simply takes over the slot of whatever state was there before
+// Safe to use from multiple threads at once without locking, as every slot is a single long
+//  holding the upper half of the hash (the lower half picks the slot) and the distance
+public class TranspositionTable {
+
+    private static final int BYTES_PER_SLOT = 8;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    // Uses the largest power of two amount of slots that fits within maxBytes
+    public TranspositionTable(long maxBytes) {
+        long maxSlots = Math.max(1, Math.min(1L << 30, maxBytes / BYTES_PER_SLOT));
+        int size = Integer.highestOneBit((int) maxSlots);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    // Records that the state was reached in the given distance
+    // Returns false if it had already been reached in the same or a shorter distance
+    public boolean visit(long hash, double distance) {
+        int index = (int) hash & this.mask;
+        int check = (int) (hash >>> 32);
+        // Round up, so a stored distance is never shorter than the real one
+        float stored = (float) distance;
+        if (stored < distance) {
+            stored = Math.nextUp(stored);
+        }
+        long entry = ((long) check << 32) | (Float.floatToRawIntBits(stored) & 0xffffffffL);
+        while (true) {
+            long current = this.slots.get(index);
+            if (current != 0 && (int) (current >>> 32) == check
+                && Float.intBitsToFloat((int) current) <= distance) {
+                return false;
+            }
+            if (this.slots.compareAndSet(index, current, entry)) {
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.slots.length(); i++) {
+            this.slots.set(i, 0);
+        }
+    }
+
+    // Zobrist-style keys, random looking but derived from the number itself (SplitMix64)
+    public static long key(long value) {
+        long z = value * 0x9e3779b97f4a7c15L + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,40 @@
+package solver;
+
+// How large BruteForceSolver's search tree for a scenario is, and how long searching it takes,
+//  see BruteForceSolver.estimate
+public class TreeEstimate {
+
+    // routes the search would expand, exact if complete
+    public double nodes;
+    // random paths down the tree the estimate is averaged over
+    public long probes;
+    // routes expanded per second by one thread, measured on the steps down the random paths in
+    //  the second half of the probing time (or on the search itself if complete)
+    public double expansionRate;
+    // whether that already searched the whole tree
+    public boolean complete;
+
+    public TreeEstimate(double nodes, long probes, double expansionRate, boolean complete) {
+        this.nodes = nodes;
+        this.probes = probes;
+        this.expansionRate = expansionRate;
+        this.complete = complete;
+    }
+
+    // projected time to search the whole tree with that many threads
+    public double seconds(int parallelism) {
+        return this.nodes / this.expansionRate / parallelism;
+    }
+
+    public double seconds() {
+        return seconds(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "about %.2g routes (%s), %.0f per second, about %.3g seconds",
+            this.nodes, this.complete ? "searched" : this.probes + " probes", this.expansionRate, seconds()
+        );
+    }
+}
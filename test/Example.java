@@ -1,7 +1,7 @@
 import java.nio.file.Path;
 import scenario.Conditions;
 import scenario.Scenario;
-import solver.BruteForceSolver;
+import solver.AutoSolver;
 import solver.Result;
 import solver.Solver;
 import turf.Turf;
@@ -19,7 +19,7 @@ public class Example {
         conditions.username = "user";
         conditions.blacklist = new String[] {"black", "list"};
         Scenario scenario = new Scenario(turf, conditions);
-        Solver solver = new BruteForceSolver();
+        Solver solver = new AutoSolver();
         Result result = solver.solve(scenario);
         
         System.out.println("Result:");
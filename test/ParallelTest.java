@@ -0,0 +1,51 @@
+import java.nio.file.Path;
+import scenario.Conditions;
+import scenario.Route;
+import scenario.Scenario;
+import solver.BruteForceSolver;
+import turf.Turf;
+import util.Logging;
+
+// Checks that BruteForceSolver finds the same best route with several threads as without, for
+//  a few time limits of a trip and a round trip, exiting with 1 if it doesn't
+// The parallel search runs a few times, as which thread finds what first varies between runs
+public class ParallelTest {
+
+    private static final int THREADS = 4;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Logging.init();
+
+        Path root = Path.of(System.getProperty("user.dir"));
+        Path kmlPath = root.resolve("example.kml");
+        Turf turf = new Turf(kmlPath, "Zones", "Crossings", "Connections");
+        String[][] trips = {{"k-klassrum", "k-nösnäs"}, {"k-klassrum", "k-klassrum"}};
+        double[] timeLimits = {30.0, 45.0, 60.0};
+
+        int failures = 0;
+        for (String[] trip : trips) {
+            for (double timeLimit : timeLimits) {
+                Conditions conditions = new Conditions(trip[0], trip[1], timeLimit);
+                conditions.speed = 64.0;
+                conditions.username = "user";
+                Scenario scenario = new Scenario(turf, conditions);
+                Route sequential = new BruteForceSolver().solve(scenario).bestRoute;
+                for (int run = 0; run < RUNS; run++) {
+                    Route parallel = new BruteForceSolver(THREADS).solve(scenario).bestRoute;
+                    if (!parallel.toString().equals(sequential.toString())) {
+                        System.out.println("FAILED " + trip[0] + " -> " + trip[1] + ", " + timeLimit + " min:");
+                        System.out.println("  sequential: " + sequential.routeString(scenario.speed));
+                        System.out.println("  parallel:   " + parallel.routeString(scenario.speed));
+                        failures++;
+                    }
+                }
+            }
+        }
+
+        System.out.println(failures == 0 ? "Parallel and sequential searches agree" : failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}